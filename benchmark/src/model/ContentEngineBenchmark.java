@@ -0,0 +1,200 @@
+/******************************************************************************
+* Title: ContentEngineBenchmark.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class is a JMH benchmark of the ContentEngine inserting content into
+* a page: rendering in memory, and processing, which also writes the output
+* file and its hash.
+*
+* A temporary site is generated with a page of about 20 kB which includes
+* FRAGMENTS fragments, some of which include another fragment in turn. The
+* caches are warm after the first call, as they are during a rebuild.
+*
+* Run with "ant benchmark" -- see build.xml.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class ContentEngineBenchmark
+//
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentEngineBenchmark extends Object{
+
+    static final int FRAGMENTS = 10;
+
+    static final String PARAGRAPH =
+        "<p>\n    Lorem ipsum dolor sit amet, consectetur adipiscing elit,"
+        + " sed do eiusmod tempor incididunt ut labore et dolore.\n</p>\n";
+
+    @Param({"false", "true"})
+    public boolean minify;
+
+    File folder;
+    File page;
+    ContentEngine contentEngine;
+
+//-----------------------------------------------------------------------------
+// ContentEngineBenchmark::setUp
+//
+// Generates the site and creates the ContentEngine.
+//
+
+@Setup(Level.Trial)
+public void setUp() throws IOException
+{
+
+    folder = File.createTempFile("benchmark", "");
+    folder.delete();
+
+    File source = new File(folder, "Source Pages");
+    File fragments = new File(folder, "Fragments");
+    source.mkdirs(); fragments.mkdirs();
+
+    StringBuilder text = new StringBuilder("<html>\n<body>\n");
+
+    for (int i = 0; i < FRAGMENTS; i++){
+
+        text.append("<!--#include file=\"fragment").append(i)
+                                                    .append(".html\" -->\n");
+        for (int j = 0; j < 10; j++) {text.append(PARAGRAPH);}
+
+        StringBuilder fragment = new StringBuilder("<div>\n");
+        for (int j = 0; j < 5; j++) {fragment.append(PARAGRAPH);}
+        if (i % 2 == 0){
+            fragment.append("<!--#include file=\"nested.html\" -->\n");
+        }
+        fragment.append("</div>\n");
+
+        write(new File(fragments, "fragment" + i + ".html"), fragment);
+
+    }
+
+    text.append("</body>\n</html>\n");
+
+    page = new File(source, "index.html");
+    write(page, text);
+
+    write(new File(fragments, "nested.html"), new StringBuilder(PARAGRAPH));
+
+    Options options = new Options();
+    options.sourceFolder = source.getPath();
+    options.fragmentFolder = fragments.getPath();
+    options.outputFolder = new File(folder, "Output Pages").getPath();
+    options.dependencyFilename = new File(folder, "Dependencies.txt").getPath();
+    options.outputHashFilename = new File(folder, "Hashes.txt").getPath();
+    options.minifyOutput = minify;
+
+    contentEngine = new ContentEngine(options);
+    contentEngine.init();
+
+}//end of ContentEngineBenchmark::setUp
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngineBenchmark::tearDown
+//
+
+@TearDown(Level.Trial)
+public void tearDown()
+{
+
+    delete(folder);
+
+}//end of ContentEngineBenchmark::tearDown
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngineBenchmark::renderPage
+//
+
+@Benchmark
+public byte[] renderPage() throws IOException
+{
+
+    return(contentEngine.renderPage(page, new ExpansionParameters()));
+
+}//end of ContentEngineBenchmark::renderPage
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngineBenchmark::processPage
+//
+
+@Benchmark
+public RebuildSummary processPage()
+{
+
+    RebuildSummary summary = new RebuildSummary();
+
+    contentEngine.processPage(page, summary);
+
+    return(summary);
+
+}//end of ContentEngineBenchmark::processPage
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngineBenchmark::write
+//
+
+private static void write(File pFile, CharSequence pText) throws IOException
+{
+
+    OutputStream out = new FileOutputStream(pFile);
+
+    try{
+        out.write(pText.toString().getBytes("UTF-8"));
+    }
+    finally{
+        out.close();
+    }
+
+}//end of ContentEngineBenchmark::write
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngineBenchmark::delete
+//
+// Deletes pFile and, if it is a folder, everything in it.
+//
+
+private static void delete(File pFile)
+{
+
+    File[] files = pFile.listFiles();
+
+    if (files != null){
+        for (File file : files) {delete(file);}
+    }
+
+    pFile.delete();
+
+}//end of ContentEngineBenchmark::delete
+//-----------------------------------------------------------------------------
+
+}//end of class ContentEngineBenchmark
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,250 @@
+/******************************************************************************
+* Title: IniFileBenchmark.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class is a JMH benchmark of IniFile: loading a file, looking up
+* values, reading typed values, writing values, and saving.
+*
+* The files are generated with the given number of lines, split into
+* sections of KEYS_PER_SECTION keys each. Since getValue searches the buffer
+* from the top, values are looked up both in the first section (best case)
+* and the last (worst case).
+*
+* Run with "ant benchmark" -- see build.xml.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.awt.Color;
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class IniFileBenchmark
+//
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IniFileBenchmark extends Object{
+
+    static final int KEYS_PER_SECTION = 20;
+
+    static final String FORMAT = "UTF-8";
+
+    @Param({"100", "1000", "4000"})
+    public int lines;
+
+    File file;
+    IniFile iniFile;
+
+    String lastSection;
+    String lastKey;
+
+    int value = 0;
+
+//-----------------------------------------------------------------------------
+// IniFileBenchmark::setUp
+//
+// Writes a file with the set number of lines and loads it.
+//
+
+@Setup(Level.Trial)
+public void setUp() throws IOException
+{
+
+    file = File.createTempFile("benchmark", ".ini");
+
+    PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                                        new FileOutputStream(file), FORMAT));
+
+    try{
+        int section = -1;
+        for (int i = 0; i < lines; i++){
+            if (i % (KEYS_PER_SECTION + 1) == 0){
+                section++;
+                lastSection = "Section " + section;
+                out.println("[" + lastSection + "]");
+            }
+            else{
+                lastKey = "Key " + i;
+                out.println(lastKey + "=" + i);
+            }
+        }
+    }
+    finally{
+        out.close();
+    }
+
+    iniFile = new IniFile(file.getPath(), FORMAT);
+
+}//end of IniFileBenchmark::setUp
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// IniFileBenchmark::tearDown
+//
+
+@TearDown(Level.Trial)
+public void tearDown()
+{
+
+    file.delete();
+
+}//end of IniFileBenchmark::tearDown
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// IniFileBenchmark::load
+//
+
+@Benchmark
+public IniFile load() throws IOException
+{
+
+    return(new IniFile(file.getPath(), FORMAT));
+
+}//end of IniFileBenchmark::load
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// IniFileBenchmark::getValueFirst
+//
+
+@Benchmark
+public String getValueFirst()
+{
+
+    return(iniFile.getValue("Section 0", "Key 1", new Parameters()));
+
+}//end of IniFileBenchmark::getValueFirst
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// IniFileBenchmark::getValueLast
+//
+
+@Benchmark
+public String getValueLast()
+{
+
+    return(iniFile.getValue(lastSection, lastKey, new Parameters()));
+
+}//end of IniFileBenchmark::getValueLast
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// IniFileBenchmark::getValueMissing
+//
+// Looks up a key which is not in the last section, as happens for every
+// setting left at its default.
+//
+
+@Benchmark
+public String getValueMissing()
+{
+
+    return(iniFile.getValue(lastSection, "Missing", new Parameters()));
+
+}//end of IniFileBenchmark::getValueMissing
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// IniFileBenchmark::readInt
+//
+
+@Benchmark
+public int readInt()
+{
+
+    return(iniFile.readInt(lastSection, lastKey, 0));
+
+}//end of IniFileBenchmark::readInt
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// IniFileBenchmark::readDouble
+//
+
+@Benchmark
+public double readDouble()
+{
+
+    return(iniFile.readDouble(lastSection, lastKey, 0));
+
+}//end of IniFileBenchmark::readDouble
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// IniFileBenchmark::readString
+//
+
+@Benchmark
+public String readString()
+{
+
+    return(iniFile.readString(lastSection, lastKey, ""));
+
+}//end of IniFileBenchmark::readString
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// IniFileBenchmark::readColor
+//
+
+@Benchmark
+public Color readColor()
+{
+
+    return(iniFile.readColor(lastSection, lastKey, Color.WHITE));
+
+}//end of IniFileBenchmark::readColor
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// IniFileBenchmark::writeValue
+//
+// Replaces an existing value in the last section.
+//
+
+@Benchmark
+public void writeValue()
+{
+
+    iniFile.writeInt(lastSection, lastKey, value++);
+
+}//end of IniFileBenchmark::writeValue
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// IniFileBenchmark::save
+//
+
+@Benchmark
+public void save()
+{
+
+    iniFile.save();
+
+}//end of IniFileBenchmark::save
+//-----------------------------------------------------------------------------
+
+}//end of class IniFileBenchmark
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
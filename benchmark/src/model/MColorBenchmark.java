@@ -0,0 +1,59 @@
+/******************************************************************************
+* Title: MColorBenchmark.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class is a JMH benchmark of MColor.fromString for a color name near
+* the start and end of the list of standard names, an rrr,ggg,bbb value, and
+* an invalid value which falls back to the default.
+*
+* Run with "ant benchmark" -- see build.xml.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class MColorBenchmark
+//
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MColorBenchmark extends Object{
+
+    @Param({"BLACK", "yellow", "12, 200, 255", "not a color"})
+    public String color;
+
+//-----------------------------------------------------------------------------
+// MColorBenchmark::fromString
+//
+
+@Benchmark
+public MColor fromString()
+{
+
+    return(MColor.fromString(color));
+
+}//end of MColorBenchmark::fromString
+//-----------------------------------------------------------------------------
+
+}//end of class MColorBenchmark
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,98 @@
+/******************************************************************************
+* Title: ThreadSafeLoggerBenchmark.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class is a JMH benchmark of ThreadSafeLogger.logMessage with several
+* threads logging at once, as the worker threads do during a rebuild.
+*
+* The text area is cleared after each iteration so it does not grow without
+* limit. Runs headless; the text area is never displayed.
+*
+* Run with "ant benchmark" -- see build.xml.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package view;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import org.openjdk.jmh.annotations.*;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class ThreadSafeLoggerBenchmark
+//
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Threads(4)
+public class ThreadSafeLoggerBenchmark extends Object{
+
+    JTextArea textArea;
+    ThreadSafeLogger logger;
+
+//-----------------------------------------------------------------------------
+// ThreadSafeLoggerBenchmark::setUp
+//
+
+@Setup(Level.Trial)
+public void setUp()
+{
+
+    textArea = new JTextArea();
+    logger = new ThreadSafeLogger(textArea);
+
+}//end of ThreadSafeLoggerBenchmark::setUp
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ThreadSafeLoggerBenchmark::clear
+//
+// Waits for the messages logged so far to be displayed, then clears the
+// text area.
+//
+
+@TearDown(Level.Iteration)
+public void clear() throws InterruptedException, InvocationTargetException
+{
+
+    SwingUtilities.invokeAndWait(
+        new Runnable() {
+            @Override
+            public void run() { textArea.setText(""); } });
+
+}//end of ThreadSafeLoggerBenchmark::clear
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ThreadSafeLoggerBenchmark::logMessage
+//
+
+@Benchmark
+public void logMessage()
+{
+
+    logger.logMessage("Processed Source Pages/index.html\n");
+
+}//end of ThreadSafeLoggerBenchmark::logMessage
+//-----------------------------------------------------------------------------
+
+}//end of class ThreadSafeLoggerBenchmark
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,18 @@
+@echo off
+rem
+rem Starts WebContentHandler using the class data sharing archive made by
+rem "ant cds", if it is present next to the jar, so the program starts
+rem faster. Without arguments the GUI is started; with arguments the program
+rem runs headless -- use --help for the options.
+rem
+rem Run from the folder holding "Main Settings.ini". Extra JVM options may be
+rem given in JAVA_OPTS.
+rem
+
+set DIR=%~dp0
+
+if exist "%DIR%WebContentHandler.jsa" (
+    java -Xmx1024m %JAVA_OPTS% -XX:SharedArchiveFile="%DIR%WebContentHandler.jsa" -Xshare:auto -jar "%DIR%WebContentHandler.jar" %*
+) else (
+    java -Xmx1024m %JAVA_OPTS% -jar "%DIR%WebContentHandler.jar" %*
+)
@@ -0,0 +1,30 @@
+#!/bin/sh
+#
+# Starts WebContentHandler using the class data sharing archive made by
+# "ant cds", if it is present next to the jar, so the program starts
+# faster. Without arguments the GUI is started; with arguments the program
+# runs headless -- use --help for the options.
+#
+# Run from the folder holding "Main Settings.ini". Extra JVM options may be
+# given in JAVA_OPTS.
+#
+# The launch time is passed to the program so its startup times include
+# starting the JVM. It is left out where date cannot give milliseconds.
+#
+
+DIR=$(dirname "$0")
+JAR="$DIR/WebContentHandler.jar"
+JSA="$DIR/WebContentHandler.jsa"
+
+LAUNCH_TIME=$(date +%s%3N 2>/dev/null)
+case "$LAUNCH_TIME" in
+    *[!0-9]*|"") ;;
+    *) JAVA_OPTS="-Dwebcontenthandler.launchTime=$LAUNCH_TIME $JAVA_OPTS" ;;
+esac
+
+if [ -f "$JSA" ]; then
+    exec java -Xmx1024m $JAVA_OPTS -XX:SharedArchiveFile="$JSA" \
+                                            -Xshare:auto -jar "$JAR" "$@"
+fi
+
+exec java -Xmx1024m $JAVA_OPTS -jar "$JAR" "$@"
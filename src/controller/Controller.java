@@ -74,9 +74,15 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.text.DecimalFormat;
+import java.util.Date;
 import javax.swing.*;
 import model.Options;
+import model.RebuildSummary;
+import model.TemplateCache;
 import view.View;
 
 //-----------------------------------------------------------------------------
@@ -84,33 +90,29 @@ import view.View;
 // class Controller
 //
 
-public class Controller implements WindowListener, ActionListener, Runnable
+public class Controller implements WindowListener, ActionListener,
+                                                        PipelineListener
 {
 
     View view;
 
     Options options;
 
-    javax.swing.Timer mainTimer;
+    Pipeline pipeline;
 
     Boolean blinkStatusLabel = false;
 
     String errorMessage;
 
-    SwingWorker workerThread;
-
     DecimalFormat decimalFormat1 = new DecimalFormat("#.0");
 
     Font tSafeFont;
     String tSafeText;
 
-    int displayUpdateTimer = 0;
-
-    String XMLPageFromRemote;
-
-    boolean shutDown = false;
-
-    final JFileChooser fileChooser = new JFileChooser();
+    //page count and time at the last metrics display, for the page rate --
+    //only used on the control thread
+    long lastPageCount = 0;
+    long lastMetricsTime = System.nanoTime();
 
     static private final String newline = "\n";
 
@@ -138,30 +140,70 @@ public void init()
 
     //create and load the program options
     options = new Options();
+    options.init();
+
+    //create the engine which inserts content into pages, the worker and
+    //control threads, the remote feed handling, and the metrics
+    pipeline = new Pipeline(options, true, this);
+    pipeline.init();
+
+    //update the display periodically on the control thread
+    startScheduler();
+
+    //start polling the remote feeds, each on its own schedule
+    pipeline.startFeedPoller();
 
-    //start the control thread
-    new Thread(this).start();
+    //serve the processed pages if a port is set
+    if (options.httpServerPort > 0) {pipeline.startPageServer();}
+    else if (options.renderOnDemand){
+        view.logLine("Render On Demand requires an HTTP Server Port.");
+    }
+
+    //rebuild pages as soon as their files change if enabled
+    if (options.watchFolders) {pipeline.startFileWatcher();}
 
-    setupAndStartMainTimer();
+    view.logLine(StartupTimer.describe("Ready"));
+
+    //when the class data sharing archive is being made, exit as soon as the
+    //window is up and the events queued to finish it have run
+
+    if (Boolean.getBoolean(StartupTimer.EXIT_WHEN_READY_PROPERTY)){
+        SwingUtilities.invokeLater(
+            new Runnable() {
+                @Override
+                public void run() { shutDown(); } });
+    }
 
 }// end of Controller::init
 //-----------------------------------------------------------------------------
 
 //-----------------------------------------------------------------------------
-// Controller::setupAndStartMainTimer
+// Controller::startScheduler
+//
+// Schedules the periodic display updates on the pipeline's control thread,
+// which runs background jobs as soon as they are submitted and runs each
+// periodic task at its own configured rate. The thread sleeps when there is
+// nothing to do.
 //
-// Prepares and starts a Java Swing timer.
+// The actions of accessing remote devices occur on this thread or on worker
+// threads. If they are done on the GUI thread instead, then buttons and
+// displays get frozen during the sometimes lengthy calls to access the
+// network.
 //
 
-public void setupAndStartMainTimer()
+public void startScheduler()
 {
 
-    //main timer has 2 second period
-    mainTimer = new javax.swing.Timer (2000, this);
-    mainTimer.setActionCommand ("Timer");
-    mainTimer.start();
+    pipeline.scheduler.schedulePeriodic(
+        new Runnable() {
+            @Override
+            public void run() {
+                displayTemplateCacheStats();
+                displayMetrics();
+            } },
+        options.displayRefreshPeriod * 1000L);
 
-}// end of Controller::setupAndStartMainTimer
+}// end of Controller::startScheduler
 //-----------------------------------------------------------------------------
 
 //-----------------------------------------------------------------------------
@@ -174,8 +216,6 @@ public void setupAndStartMainTimer()
 public void actionPerformed(ActionEvent e)
 {
 
-    if ("Timer".equals(e.getActionCommand())) {doTimerActions();}
-
     if ("Display Log".equals(e.getActionCommand())) {displayLog();}
 
     if ("Display Help".equals(e.getActionCommand())) {displayHelp();}
@@ -188,6 +228,16 @@ public void actionPerformed(ActionEvent e)
         doSomething2();
     }
 
+    if ("Rebuild All".equals(e.getActionCommand())) {rebuildPages(true);}
+
+    if ("Rebuild Changed".equals(e.getActionCommand())) {rebuildPages(false);}
+
+    if ("Cancel Jobs".equals(e.getActionCommand())) {cancelJobs();}
+
+    if ("Fetch Remote Page".equals(e.getActionCommand())) {fetchRemotePage();}
+
+    if ("Save Metrics".equals(e.getActionCommand())) {saveMetricsSnapshot();}
+
 }//end of Controller::actionPerformed
 //-----------------------------------------------------------------------------
 
@@ -205,21 +255,6 @@ public void paintComponent (Graphics g)
 
 */
 
-//-----------------------------------------------------------------------------
-// Controller::doTimerActions
-//
-// Performs actions driven by the timer.
-//
-// Not used for accessing network -- see run function for details.
-//
-
-public void doTimerActions()
-{
-
-
-}//end of Controller::doTimerActions
-//-----------------------------------------------------------------------------
-
 //-----------------------------------------------------------------------------
 // Controller::displayLog
 //
@@ -275,75 +310,137 @@ private void doSomething1()
 //-----------------------------------------------------------------------------
 
 //-----------------------------------------------------------------------------
-// Controller::doSomethingInWorkerThread
+// Controller::rebuildPages
+//
+// Inserts content into the source pages in the background so the GUI is
+// still responsive. If pRebuildAll is true, every page is processed;
+// otherwise only the pages affected by changed pages or fragments are
+// processed as determined by the dependency graph.
+//
+// Only one rebuild is allowed at a time.
+//
+
+private void rebuildPages(boolean pRebuildAll)
+{
+
+    if (!pipeline.rebuildPages(pRebuildAll)){
+        view.logLine("A rebuild is already in progress.");
+    }
+
+}//end of Controller::rebuildPages
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Controller::rebuildStarted
+//
+// Shows that a rebuild is in progress. May be called from any thread.
+//
+
+@Override
+public void rebuildStarted()
+{
+
+    view.updateStatus("Rebuilding...");
+
+}//end of Controller::rebuildStarted
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Controller::pageFinished
 //
-// Does nothing right now -- modify it to call a function which takes a long
-// time to finish. It will be run in a background thread so the GUI is still
-// responsive.
-// -- CHANGE THE NAME TO REFLECT THE ACTION BEING DONE --
+// Logs the timing of each page's job. Called on a worker thread.
 //
 
-private void doSomethingInWorkerThread()
+@Override
+public void pageFinished(String pName, long pWaitNanos, long pRunNanos,
+                                        boolean pCancelled, Throwable pError)
 {
 
-    //define and instantiate a worker thread to create the file
+    logJobTiming(pName, pWaitNanos, pRunNanos, pCancelled, pError);
+
+}//end of Controller::pageFinished
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Controller::rebuildFinished
+//
+// Reports the results of a rebuild. Called on the control thread.
+//
+
+@Override
+public void rebuildFinished(RebuildSummary pSummary)
+{
 
+    for (String error : pSummary.errors) {view.logLine(error);}
 
-    //----------------------------------------------------------------------
-    //class SwingWorker
-    //
+    view.logLine(pSummary.toString());
+    view.logLine(pipeline.contentEngine.getFragmentCache().getStatistics());
+    view.updateStatus("Status");
+    displayTemplateCacheStats();
+    displayMetrics();
 
-    workerThread = new SwingWorker<Void, String>() {
-        @Override
-        public Void doInBackground() {
+}//end of Controller::rebuildFinished
+//-----------------------------------------------------------------------------
 
-            //do the work here by calling a function
+//-----------------------------------------------------------------------------
+// Controller::fetchRemotePage
+//
+// Polls every remote feed now rather than waiting for its next scheduled
+// poll. Each feed is fetched on a worker thread; if it has changed since it
+// was last fetched, its mapped elements are streamed into their fragments
+// and the pages which include any changed fragment are rebuilt.
+//
 
-            return(null);
+private void fetchRemotePage()
+{
 
-        }//end of doInBackground
+    if (pipeline.feedPoller.getFeedCount() == 0){
+        view.logLine("No Remote Page URL or feeds are set in "
+                                                + Options.SETTINGS_FILENAME);
+        return;
+    }
 
-        @Override
-        public void done() {
+    pipeline.feedPoller.pollAll();
 
-            //clear in progress message here if one is being displayed
+}//end of Controller::fetchRemotePage
+//-----------------------------------------------------------------------------
 
-            try {
+//-----------------------------------------------------------------------------
+// Controller::cancelJobs
+//
+// Cancels all queued and running background jobs and stops any rebuild from
+// submitting more.
+//
 
-                //use get(); function here to retrieve results if necessary
-                //note that Void type here and above would be replaced with
-                //the type of variable to be returned
+private void cancelJobs()
+{
 
-                Void v = get();
+    int count = pipeline.cancelJobs();
 
-            } catch (InterruptedException ignore) {}
-            catch (java.util.concurrent.ExecutionException e) {
-                String why;
-                Throwable cause = e.getCause();
-                if (cause != null) {
-                    why = cause.getMessage();
-                } else {
-                    why = e.getMessage();
-                }
-                System.err.println("Error creating file: " + why);
-            }//catch
+    view.logLine("Cancelled " + count + " jobs.");
 
-        }//end of done
+}//end of Controller::cancelJobs
+//-----------------------------------------------------------------------------
 
-        @Override
-        protected void process(java.util.List <String> pairs) {
+//-----------------------------------------------------------------------------
+// Controller::logJobTiming
+//
+// Writes the time a job spent waiting in the queue and running to the log.
+// This is thread safe and may be called from any thread.
+//
 
-            //this method is not used by this application as it is limited
-            //the publish method cannot be easily called outside the class, so
-            //messages are displayed using a ThreadSafeLogger object and status
-            //components are updated using a GUIUpdater object
+private void logJobTiming(String pName, long pWaitNanos, long pRunNanos,
+                                        boolean pCancelled, Throwable pError)
+{
 
-        }//end of process
+    String result = "";
+    if (pCancelled) {result = " -- cancelled";}
+    else if (pError != null) {result = " -- failed";}
 
-    };//end of class SwingWorker
-    //----------------------------------------------------------------------
+    view.logLine(String.format("%s: ran %.1f ms, waited %.1f ms%s",
+                        pName, pRunNanos / 1e6, pWaitNanos / 1e6, result));
 
-}//end of Controller::doSomethingInWorkerThread
+}//end of Controller::logJobTiming
 //-----------------------------------------------------------------------------
 
 //-----------------------------------------------------------------------------
@@ -358,73 +455,92 @@ private void doSomething2()
 //-----------------------------------------------------------------------------
 
 //-----------------------------------------------------------------------------
-// Controller::run
-//
-// This is the part which runs as a separate thread.  The actions of accessing
-// remote devices occur here.  If they are done in a timer call instead, then
-// buttons and displays get frozen during the sometimes lengthy calls to access
-// the network.
+// Controller::displayTemplateCacheStats
 //
-// NOTE:  All functions called by this thread must wrap calls to alter GUI
-// components in the invokeLater function to be thread safe.
+// Updates the template cache hit and miss counts on the main window. This is
+// thread safe and may be called from any thread.
 //
 
-@Override
-public void run()
+public void displayTemplateCacheStats()
 {
 
-    //call the control method repeatedly
-    while(true){
-
-        control();
+    TemplateCache cache = pipeline.contentEngine.getTemplateCache();
 
-        //sleep for 2 seconds -- all timing is based on this period
-        threadSleep(2000);
-
-    }
+    view.updateTemplateCacheDisplay(cache.getHits(), cache.getMisses());
 
-}//end of Controller::run
+}//end of Controller::displayTemplateCacheStats
 //-----------------------------------------------------------------------------
 
 //-----------------------------------------------------------------------------
-// Controller::threadSleep
+// Controller::displayMetrics
 //
-// Calls the Thread.sleep function. Placed in a function to avoid the
-// "Thread.sleep called in a loop" warning -- yeah, it's cheezy.
+// Updates the throughput and latency display on the main window. Runs on
+// the control thread, every display refresh period and when a rebuild
+// finishes so the final counts are shown at once. The rebuild's pages are
+// submitted from their own thread, never this one, so the display keeps
+// updating while the job queue is full.
 //
 
-public void threadSleep(int pSleepTime)
+private void displayMetrics()
 {
 
-    try {Thread.sleep(pSleepTime);} catch (InterruptedException e) { }
+    long now = System.nanoTime();
+    PipelineMetrics metrics = pipeline.metrics;
+
+    long pages = metrics.pagesProcessed.get();
+
+    double rate = (pages - lastPageCount) / ((now - lastMetricsTime) / 1e9);
+
+    lastPageCount = pages; lastMetricsTime = now;
 
-}//end of Controller::threadSleep
+    String info = String.format("Pages: %d, %.1f/s, %d failed",
+                                    pages, rate, metrics.pagesFailed.get());
+
+    String progress = String.format("p50/p99: %.1f/%.1f ms, queue %d",
+              metrics.pageTimes.getPercentile(50) / 1e6,
+              metrics.pageTimes.getPercentile(99) / 1e6,
+              (long)metrics.getMetrics().getValue("jobs.queued"));
+
+    view.updateMetricsDisplay(info, progress);
+
+}//end of Controller::displayMetrics
 //-----------------------------------------------------------------------------
 
 //-----------------------------------------------------------------------------
-// Controller::control
+// Controller::saveMetricsSnapshot
 //
-// Performs all display and control.  Call this from a thread.
+// Writes a snapshot of all metrics to the log window and to a file in the
+// "Log Files" folder named with the date.
 //
 
-public void control()
+private void saveMetricsSnapshot()
 {
 
-    //update the display every 30 seconds
-    if (displayUpdateTimer++ == 14){
-        displayUpdateTimer = 0;
-        //call function to update stuff here
-    }
+    String snapshot = pipeline.metrics.getMetrics().getSnapshot();
 
+    view.logLine(snapshot);
 
-    //If a shut down is initiated, clean up and exit the program.
+    File folder = new File("Log Files");
+    folder.mkdirs();
 
-    if(shutDown){
-        //exit the program
-        System.exit(0);
+    File file = new File(folder,
+                new Date().toString().replace(":", ".") + " ~ Metrics.txt");
+
+    PrintWriter out = null;
+
+    try{
+        out = new PrintWriter(file, "UTF-8");
+        out.print(snapshot);
+        view.logLine("Metrics saved to " + file);
+    }
+    catch(IOException e){
+        view.displayErrorMessage("Could not save metrics: " + e.getMessage());
+    }
+    finally{
+        if (out != null) {out.close();}
     }
 
-}//end of Controller::control
+}//end of Controller::saveMetricsSnapshot
 //-----------------------------------------------------------------------------
 
 //-----------------------------------------------------------------------------
@@ -441,20 +557,58 @@ public void displayErrorMessage(String pMessage)
 }//end of Controller::displayErrorMessage
 //-----------------------------------------------------------------------------
 
+//-----------------------------------------------------------------------------
+// Controller::logLine
+//
+// Writes pMessage to the log window. This is thread safe and may be called
+// from any thread.
+//
+
+@Override
+public void logLine(String pMessage)
+{
+
+    view.logLine(pMessage);
+
+}//end of Controller::logLine
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Controller::logError
+//
+// Writes the error message pMessage to the log window. This is thread safe
+// and may be called from any thread.
+//
+
+@Override
+public void logError(String pMessage)
+{
+
+    view.logLine(pMessage);
+
+}//end of Controller::logError
+//-----------------------------------------------------------------------------
+
 //-----------------------------------------------------------------------------
 // Controller::shutDown
 //
 // Disables chassis power and performs any other appropriate shut down
 // operations.
 //
-// This is done by setting a flag so that this class's thread can do the
-// actual work, thus avoiding thread contention.
+// This is done by queueing a job so that the control thread does the actual
+// work after any jobs already queued, thus avoiding thread contention.
 //
 
 public void shutDown()
 {
 
-    shutDown = true;
+    pipeline.scheduler.submit(
+        new Runnable() {
+            @Override
+            public void run() {
+                //exit the program
+                System.exit(0);
+            } });
 
 }//end of Controller::shutDown
 //-----------------------------------------------------------------------------
@@ -0,0 +1,55 @@
+/******************************************************************************
+* Title: FeedListener.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This interface is implemented by classes which need to be notified when a
+* FeedPoller has fetched a feed or failed to.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package controller;
+
+import java.util.ArrayList;
+import model.Feed;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// interface FeedListener
+//
+
+public interface FeedListener {
+
+//-----------------------------------------------------------------------------
+// FeedListener::feedFetched
+//
+// Called on a worker thread when pFeed has been fetched. pChanged is false if
+// pFeed had already ingested the content of the local copy. pFragments holds
+// the paths of the fragments whose content changed; it is empty if none did.
+//
+
+public void feedFetched(Feed pFeed, boolean pChanged,
+                                                ArrayList<String> pFragments);
+
+//-----------------------------------------------------------------------------
+// FeedListener::feedFailed
+//
+// Called when a fetch of pFeed has failed or been cancelled. pRetryDelay is
+// the number of milliseconds until the fetch is retried or -1 if it will not
+// be retried before the feed's next scheduled poll.
+//
+
+public void feedFailed(Feed pFeed, String pMessage, long pRetryDelay);
+
+}//end of interface FeedListener
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,441 @@
+/******************************************************************************
+* Title: FeedPoller.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class polls the remote feeds in the feed registry, each on its own
+* schedule.
+*
+* The Scheduler's control thread keeps the timing: when a feed is due, it is
+* handed to a JobExecutor to be fetched and ingested on a worker thread, so
+* a feed which is slow to respond never delays any other. That executor is
+* used only for fetches, so polls are not turned away while a large rebuild
+* fills the page queue and slow servers never hold up page processing. The
+* number of fetches in progress at once is limited; a feed which comes due
+* while the limit is reached waits in line and is started as soon as another
+* fetch finishes.
+*
+* Each feed is polled every interval plus a random jitter. A failed fetch is
+* retried after the feed's backoff delay, which doubles with each failure
+* up to MAX_RETRY_DELAY, up to the feed's retry count; after that the feed
+* waits for its next regular poll.
+*
+* A feed's content is ingested whenever the version of the local copy
+* differs from the one the feed last ingested, rather than only when the
+* server reports a change. The fetcher saves a page's validators as soon as
+* its body is received, so a feed whose content could not be ingested would
+* be answered 304 from then on; and feeds which share a URL but map
+* different elements each see the change, even though only the first fetch
+* after it is answered with the new page. The first fetch after startup
+* always ingests, in case the previous run stopped before doing so.
+*
+* Until polling is started, the feeds are only fetched on request: fetchAll
+* fetches each once and waits for them, without retries or later polls, for
+* a one-shot fetch before a rebuild.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import model.Feed;
+import model.FetchResult;
+import model.RemoteContentParser;
+import model.RemoteFetcher;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class FeedPoller
+//
+
+public class FeedPoller extends Object{
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class FeedState
+//
+// Holds the polling state of one feed. Only changed while holding the
+// FeedPoller's lock.
+//
+
+static class FeedState {
+
+    Feed feed;
+
+    //number of failed fetches since the last success
+    int failures = 0;
+
+    //version of the local copy last ingested without error, null if none
+    //has been since startup -- only changed by the feed's own fetch job
+    volatile String ingestedVersion = null;
+
+    //true while the feed is waiting for a free slot or being fetched
+    boolean busy = false;
+
+    //the next scheduled poll or retry
+    ScheduledFuture<?> next;
+
+}//end of class FeedState
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+
+    //longest delay in milliseconds before a failed fetch is retried, however
+    //many times it has failed
+    static final long MAX_RETRY_DELAY = 60 * 60 * 1000L;
+
+    Scheduler scheduler;
+    JobExecutor jobExecutor;
+    RemoteFetcher fetcher;
+    RemoteContentParser parser;
+    FeedListener listener;
+
+    int maxInFlight;
+    int inFlight = 0;
+
+    ArrayList<FeedState> states = new ArrayList<FeedState>();
+
+    //feeds which are due but waiting for a fetch to finish
+    ArrayDeque<FeedState> waiting = new ArrayDeque<FeedState>();
+
+    //number of feeds waiting for or being fetched whose fetch has not yet
+    //been fully reported
+    int unfinished = 0;
+
+    boolean polling = false;
+    boolean stopped = false;
+
+//-----------------------------------------------------------------------------
+// FeedPoller::FeedPoller (constructor)
+//
+// pMaxInFlight is the maximum number of feeds fetched at once. pJobExecutor
+// runs the fetches; it should not be shared with the page processing and
+// must accept at least pMaxInFlight jobs at once.
+//
+
+public FeedPoller(List<Feed> pFeeds, int pMaxInFlight, Scheduler pScheduler,
+                JobExecutor pJobExecutor, RemoteFetcher pFetcher,
+                RemoteContentParser pParser, FeedListener pListener)
+{
+
+    maxInFlight = pMaxInFlight; scheduler = pScheduler;
+    jobExecutor = pJobExecutor; fetcher = pFetcher; parser = pParser;
+    listener = pListener;
+
+    for (Feed feed : pFeeds){
+        FeedState state = new FeedState();
+        state.feed = feed;
+        states.add(state);
+    }
+
+}//end of FeedPoller::FeedPoller (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FeedPoller::startPolling
+//
+// Schedules the first poll of each feed which has an interval. The first
+// polls are spread over each feed's jitter so they do not all start at once.
+// From then on, each fetch schedules the feed's next poll or retry.
+//
+
+public synchronized void startPolling()
+{
+
+    polling = true;
+
+    for (FeedState state : states){
+        if (state.feed.interval > 0) {schedule(state, jitter(state.feed));}
+    }
+
+}//end of FeedPoller::startPolling
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FeedPoller::getFeedCount
+//
+
+public int getFeedCount()
+{
+
+    return(states.size());
+
+}//end of FeedPoller::getFeedCount
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FeedPoller::isPolling
+//
+
+public synchronized boolean isPolling()
+{
+
+    return(polling);
+
+}//end of FeedPoller::isPolling
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FeedPoller::pollAll
+//
+// Polls every feed now, including those only fetched on request. Feeds
+// already being fetched are skipped. May be called from any thread.
+//
+
+public synchronized void pollAll()
+{
+
+    for (FeedState state : states) {poll(state);}
+
+}//end of FeedPoller::pollAll
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FeedPoller::fetchAll
+//
+// Polls every feed now and waits until each fetch is done and has been
+// reported to the listener. Failures are reported like any other; if polling
+// has not been started, they are not retried.
+//
+
+public synchronized void fetchAll() throws InterruptedException
+{
+
+    pollAll();
+
+    while (unfinished > 0) {wait();}
+
+}//end of FeedPoller::fetchAll
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FeedPoller::stop
+//
+// Cancels all scheduled polls. Fetches in progress are allowed to finish but
+// no more are started.
+//
+
+public synchronized void stop()
+{
+
+    stopped = true;
+
+    for (FeedState state : states){
+        if (state.next != null) {state.next.cancel(false);}
+    }
+
+    waiting.clear();
+
+}//end of FeedPoller::stop
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FeedPoller::schedule
+//
+// Schedules pState to be polled pDelay milliseconds from now, replacing any
+// poll already scheduled for it.
+//
+
+private void schedule(final FeedState pState, long pDelay)
+{
+
+    if (stopped) {return;}
+
+    if (pState.next != null) {pState.next.cancel(false);}
+
+    pState.next = scheduler.schedule(
+        new Runnable() {
+            @Override
+            public void run() {
+                synchronized(FeedPoller.this) {poll(pState);}
+            } },
+        pDelay);
+
+}//end of FeedPoller::schedule
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FeedPoller::poll
+//
+// Starts a fetch of pState's feed if there is a free slot or puts it in line
+// for the next free slot. Does nothing if the feed is already busy. The
+// caller must hold the lock.
+//
+
+private void poll(FeedState pState)
+{
+
+    if (stopped || pState.busy) {return;}
+
+    pState.busy = true;
+    unfinished++;
+
+    if (inFlight < maxInFlight) {start(pState);}
+    else {waiting.add(pState);}
+
+}//end of FeedPoller::poll
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FeedPoller::start
+//
+// Submits a job to fetch and ingest pState's feed. The caller must hold the
+// lock.
+//
+
+private void start(final FeedState pState)
+{
+
+    inFlight++;
+
+    final Feed feed = pState.feed;
+
+    Runnable job = new Runnable() {
+        @Override
+        public void run() {
+            try{
+                FetchResult result = fetcher.fetch(feed.url, feed.timeout);
+                boolean changed =
+                            !result.version.equals(pState.ingestedVersion);
+                ArrayList<String> fragments = new ArrayList<String>();
+                if (changed){
+                    fragments = parser.ingest(result.file, feed.elements);
+                    pState.ingestedVersion = result.version;
+                }
+                listener.feedFetched(feed, changed, fragments);
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("interrupted");
+            }
+        } };
+
+    JobListener jobListener = new JobListener() {
+        @Override
+        public void jobFinished(String pName, long pWaitNanos, long pRunNanos,
+                                      boolean pCancelled, Throwable pError) {
+            String message = null;
+            if (pCancelled) {message = "cancelled";}
+            else if (pError != null){
+                //some errors, such as a refused connection, have no message
+                //and a null message would count as success
+                Throwable cause = pError.getCause() != null ?
+                                                pError.getCause() : pError;
+                message = cause.getMessage() != null ?
+                                        cause.getMessage() : cause.toString();
+            }
+            finished(pState, message);
+        }};
+
+    Future<Void> future =
+                jobExecutor.trySubmit("Fetch " + feed.name, job, jobListener);
+
+    if (future == null) {finished(pState, "job queue is full");}
+
+}//end of FeedPoller::start
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FeedPoller::finished
+//
+// Called when a fetch of pState's feed is done. pError is null if it
+// succeeded. Frees the fetch's slot for the next waiting feed and, if
+// polling has been started, schedules the feed's next poll or retry.
+//
+
+private void finished(FeedState pState, String pError)
+{
+
+    long retryDelay = -1;
+
+    synchronized(this){
+
+        inFlight--;
+        pState.busy = false;
+
+        if (!waiting.isEmpty()) {start(waiting.remove());}
+
+        Feed feed = pState.feed;
+
+        if (pError == null){
+            pState.failures = 0;
+        }
+        else if (polling && pState.failures < feed.retries){
+            retryDelay = retryDelay(feed, pState.failures);
+            pState.failures++;
+        }
+        else{
+            pState.failures = 0;
+        }
+
+        if (retryDelay >= 0) {schedule(pState, retryDelay);}
+        else if (polling && feed.interval > 0){
+            schedule(pState, feed.interval * 1000L + jitter(feed));
+        }
+
+    }
+
+    if (pError != null) {listener.feedFailed(pState.feed, pError, retryDelay);}
+
+    synchronized(this){
+        unfinished--;
+        notifyAll();
+    }
+
+}//end of FeedPoller::finished
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FeedPoller::retryDelay
+//
+// Returns the number of milliseconds to wait before retrying pFeed after
+// pFailures earlier failures: the feed's backoff doubled for each failure,
+// but never more than MAX_RETRY_DELAY. The shift is limited so a feed with
+// many retries cannot overflow the delay.
+//
+
+static long retryDelay(Feed pFeed, int pFailures)
+{
+
+    long delay = (long)pFeed.retryBackoff << Math.min(pFailures, 30);
+
+    return(Math.min(delay, MAX_RETRY_DELAY));
+
+}//end of FeedPoller::retryDelay
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FeedPoller::jitter
+//
+// Returns a random number of milliseconds up to pFeed's jitter.
+//
+
+private static long jitter(Feed pFeed)
+{
+
+    if (pFeed.jitter <= 0) {return(0);}
+
+    return(ThreadLocalRandom.current().nextLong(pFeed.jitter * 1000L + 1));
+
+}//end of FeedPoller::jitter
+//-----------------------------------------------------------------------------
+
+}//end of class FeedPoller
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,45 @@
+/******************************************************************************
+* Title: FileWatchListener.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This interface is implemented by classes which need to be notified when a
+* FileWatcher has seen files change.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package controller;
+
+import java.io.File;
+import java.util.ArrayList;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// interface FileWatchListener
+//
+
+public interface FileWatchListener {
+
+//-----------------------------------------------------------------------------
+// FileWatchListener::filesChanged
+//
+// Called on the control thread once a burst of changes has settled. pFiles
+// holds each file or folder which was created, modified, or deleted, once
+// each. It is empty if changes were lost because they arrived faster than
+// they could be read, in which case every file must be checked.
+//
+
+public void filesChanged(ArrayList<File> pFiles);
+
+}//end of interface FileWatchListener
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,375 @@
+/******************************************************************************
+* Title: FileWatcher.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class watches folders and files for changes so that pages can be
+* rebuilt as soon as a source page, fragment, or settings file is saved,
+* rather than waiting for a rebuild to be requested.
+*
+* A WatchService reports the changes on a thread of its own. Folders are
+* watched along with every folder below them; folders created later are
+* added as they appear. Since a single save often produces several events --
+* and copying a folder of files produces many -- the changes are collected
+* and only reported to the listener once none have arrived for the debounce
+* period. So that a steady stream of changes cannot hold off the report
+* forever, it is never delayed by more than ten debounce periods.
+*
+* The report is made on the control thread, so the listener may start a
+* rebuild directly.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class FileWatcher
+//
+
+public class FileWatcher extends Object{
+
+    Scheduler scheduler;
+    long debounce;
+    FileWatchListener listener;
+
+    //folders watched along with all folders below them
+    ArrayList<Path> folders = new ArrayList<Path>();
+
+    //single files watched, keyed by absolute path
+    HashMap<Path, File> files = new HashMap<Path, File>();
+
+    WatchService watchService;
+
+    //the folder watched by each key -- only used on the watch thread once
+    //it has been started
+    HashMap<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+
+    //keys which are for the folder of a single watched file rather than a
+    //folder which is watched in full
+    HashSet<WatchKey> fileKeys = new HashSet<WatchKey>();
+
+    Thread thread;
+
+    //changes waiting for the debounce period to pass
+    LinkedHashSet<File> pending = new LinkedHashSet<File>();
+    boolean overflow = false;
+    long firstChange;
+    ScheduledFuture<?> report;
+
+    //the report is never delayed by more than this many debounce periods
+    static final int MAX_DEBOUNCE_PERIODS = 10;
+
+//-----------------------------------------------------------------------------
+// FileWatcher::FileWatcher (constructor)
+//
+// pDebounce is the number of milliseconds which must pass without a change
+// before the changes are reported.
+//
+
+public FileWatcher(Scheduler pScheduler, long pDebounce,
+                                                FileWatchListener pListener)
+{
+
+    scheduler = pScheduler; debounce = pDebounce; listener = pListener;
+
+}//end of FileWatcher::FileWatcher (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FileWatcher::init
+//
+// Initializes the object.  Must be called immediately after instantiation
+// and after the folders and files to be watched have been added.
+//
+// Starts watching. Folders which do not exist are skipped.
+//
+
+public void init() throws IOException
+{
+
+    watchService = FileSystems.getDefault().newWatchService();
+
+    for (Path folder : folders){
+        if (Files.isDirectory(folder)) {registerTree(folder, false);}
+    }
+
+    for (Path file : files.keySet()){
+        Path parent = file.getParent();
+        if (!Files.isDirectory(parent)) {continue;}
+        fileKeys.add(register(parent));
+    }
+
+    thread = new Thread(
+        new Runnable() {
+            @Override
+            public void run() { watch(); } },
+        "File Watcher");
+
+    thread.setDaemon(true);
+    thread.start();
+
+}//end of FileWatcher::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FileWatcher::addFolder
+//
+// Watches pFolder and every folder below it. Must be called before init.
+//
+
+public void addFolder(String pFolder)
+{
+
+    folders.add(Paths.get(pFolder));
+
+}//end of FileWatcher::addFolder
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FileWatcher::addFile
+//
+// Watches the single file pFile, which need not exist yet. Must be called
+// before init.
+//
+
+public void addFile(String pFile)
+{
+
+    files.put(Paths.get(pFile).toAbsolutePath().normalize(), new File(pFile));
+
+}//end of FileWatcher::addFile
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FileWatcher::getFolderCount
+//
+// Returns the number of folders being watched, including those below the
+// folders added.
+//
+
+public int getFolderCount()
+{
+
+    return(keys.size() - fileKeys.size());
+
+}//end of FileWatcher::getFolderCount
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FileWatcher::stop
+//
+// Stops watching. Changes waiting to be reported are discarded.
+//
+
+public synchronized void stop()
+{
+
+    try{
+        watchService.close();
+    }
+    catch(IOException e){
+        //the watch thread ends either way
+    }
+
+    if (report != null) {report.cancel(false);}
+
+    pending.clear();
+
+}//end of FileWatcher::stop
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FileWatcher::watch
+//
+// Waits for changes and collects them until the watch service is closed.
+// Runs on the watch thread.
+//
+
+private void watch()
+{
+
+    while (true){
+
+        WatchKey key;
+
+        try{
+            key = watchService.take();
+        }
+        catch(ClosedWatchServiceException e){
+            return;
+        }
+        catch(InterruptedException e){
+            return;
+        }
+
+        Path folder = keys.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()){
+
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW){
+                changed(null);
+                continue;
+            }
+
+            if (folder == null) {continue;}
+
+            Path path = folder.resolve((Path)event.context());
+
+            if (fileKeys.contains(key)){
+                File file = files.get(path.toAbsolutePath().normalize());
+                if (file != null) {changed(file);}
+                continue;
+            }
+
+            changed(path.toFile());
+
+            //watch new folders, reporting any files already created in them
+
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                                            && Files.isDirectory(path)){
+                try{
+                    registerTree(path, true);
+                }
+                catch(IOException e){
+                    changed(null);
+                }
+            }
+
+        }
+
+        //a key which is no longer valid is for a folder which was deleted
+
+        if (!key.reset()) {keys.remove(key); fileKeys.remove(key);}
+
+    }
+
+}//end of FileWatcher::watch
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FileWatcher::register
+//
+// Watches pFolder, but not the folders below it, and returns its key.
+//
+
+private WatchKey register(Path pFolder) throws IOException
+{
+
+    WatchKey key = pFolder.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+
+    keys.put(key, pFolder);
+
+    return(key);
+
+}//end of FileWatcher::register
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FileWatcher::registerTree
+//
+// Watches pFolder and every folder below it. If pReport is true, each file
+// found is reported as changed since it may have been created before its
+// folder was watched.
+//
+
+private void registerTree(Path pFolder, final boolean pReport)
+                                                            throws IOException
+{
+
+    Files.walkFileTree(pFolder, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path pDir,
+                        BasicFileAttributes pAttributes) throws IOException {
+            register(pDir);
+            return(FileVisitResult.CONTINUE);
+        }
+        @Override
+        public FileVisitResult visitFile(Path pFile,
+                        BasicFileAttributes pAttributes) {
+            if (pReport) {changed(pFile.toFile());}
+            return(FileVisitResult.CONTINUE);
+        }});
+
+}//end of FileWatcher::registerTree
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FileWatcher::changed
+//
+// Adds pFile to the changes to be reported, or notes that changes were lost
+// if pFile is null, and schedules the report for when the debounce period
+// has passed.
+//
+
+private synchronized void changed(File pFile)
+{
+
+    long now = System.currentTimeMillis();
+
+    if (pending.isEmpty() && !overflow) {firstChange = now;}
+
+    if (pFile == null) {overflow = true;}
+    else {pending.add(pFile);}
+
+    if (report != null) {report.cancel(false);}
+
+    long delay = Math.min(debounce,
+                  firstChange + debounce * MAX_DEBOUNCE_PERIODS - now);
+
+    report = scheduler.schedule(
+        new Runnable() {
+            @Override
+            public void run() { report(); } },
+        Math.max(0, delay));
+
+}//end of FileWatcher::changed
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FileWatcher::report
+//
+// Passes the collected changes to the listener. Runs on the control thread.
+//
+
+private void report()
+{
+
+    ArrayList<File> changes;
+
+    synchronized(this){
+        if (pending.isEmpty() && !overflow) {return;}
+        changes = overflow ?
+                        new ArrayList<File>() : new ArrayList<File>(pending);
+        pending.clear();
+        overflow = false;
+        report = null;
+    }
+
+    listener.filesChanged(changes);
+
+}//end of FileWatcher::report
+//-----------------------------------------------------------------------------
+
+}//end of class FileWatcher
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
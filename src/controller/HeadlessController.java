@@ -0,0 +1,456 @@
+/******************************************************************************
+* Title: HeadlessController.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class runs the content processing pipeline from the command line
+* without creating any GUI, for use in scripts, cron jobs, and build
+* servers which may have no display.
+*
+* It runs the same Pipeline, with the same settings file, ContentEngine,
+* worker threads, and remote feed handling, as the Controller, but the GUI
+* toolkit is never started, so it starts quickly and runs under
+* java.awt.headless. Messages go to the console and, optionally, to a log
+* file.
+*
+* Usage:
+*
+*   java -jar WebContentHandler.jar [options]
+*
+*   --rebuild-changed   rebuild pages affected by changes (the default)
+*   --rebuild-all       rebuild every page
+*   --fetch             fetch all remote feeds before rebuilding
+*   --log <file>        also append messages to <file>
+*   --serve             after rebuilding, serve the pages and metrics and
+*                       poll the feeds until stopped
+*   --watch             after rebuilding, watch the source and fragment
+*                       folders and rebuild affected pages until stopped
+*   --quiet             print only errors and the summary
+*   --help              print this usage
+*
+* The exit status is 0 on success, 1 if any errors occurred, and 2 if the
+* command line is invalid.
+*
+* When serving, the embedded page server is started on the HTTP Server Port
+* and also serves the metrics in the Prometheus text format at the Metrics
+* Path, so a long running deployment can be monitored without the GUI.
+* Pages which include a changed feed are rebuilt. The process runs until it
+* is stopped with Ctrl+C or a signal, when a final metrics snapshot is
+* written.
+*
+* When watching, which may be combined with serving, each change to a source
+* page or fragment is mapped through the dependency graph and only the
+* affected pages are rebuilt, typically well under a second after the file
+* is saved.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package controller;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import model.*;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class HeadlessController
+//
+
+public class HeadlessController extends Object implements PipelineListener{
+
+    static final String USAGE =
+        "Usage: java -jar WebContentHandler.jar [options]\n"
+        + "  --rebuild-changed   rebuild pages affected by changes (default)\n"
+        + "  --rebuild-all       rebuild every page\n"
+        + "  --fetch             fetch all remote feeds before rebuilding\n"
+        + "  --log <file>        also append messages to <file>\n"
+        + "  --serve             serve the pages and metrics until stopped\n"
+        + "  --watch             rebuild pages as files change until stopped\n"
+        + "  --quiet             print only errors and the summary\n"
+        + "  --help              print this usage";
+
+    String[] args;
+
+    boolean rebuildAll = false;
+    boolean fetch = false;
+    boolean serve = false;
+    boolean watch = false;
+    boolean quiet = false;
+    boolean help = false;
+    String logFilename = null;
+
+    PrintWriter logFile;
+
+    Options options;
+    Pipeline pipeline;
+
+    int errorCount = 0;
+
+//-----------------------------------------------------------------------------
+// HeadlessController::HeadlessController (constructor)
+//
+
+public HeadlessController(String[] pArgs)
+{
+
+    args = pArgs;
+
+}//end of HeadlessController::HeadlessController (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+
+public void init()
+{
+
+}//end of HeadlessController::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::run
+//
+// Parses the command line, runs the requested processing, and returns the
+// exit status.
+//
+
+public int run()
+{
+
+    long start = System.nanoTime();
+
+    if (!parseArguments()){
+        System.err.println(USAGE);
+        return(2);
+    }
+
+    if (help){
+        System.out.println(USAGE);
+        return(0);
+    }
+
+    try{
+
+        openLogFile();
+
+        logLine(StartupTimer.describe("Started"));
+
+        options = new Options();
+        options.init();
+
+        pipeline = new Pipeline(options, fetch || serve, this);
+        pipeline.init();
+
+        if (fetch) {fetchFeeds();}
+
+        //the server is started first so the rebuilt pages go into its store
+        if (serve && !startPageServer()) {serve = false;}
+
+        pipeline.rebuildPages(rebuildAll);
+        pipeline.waitForRebuild();
+
+        //runs until the process is stopped
+        if (serve || watch) {runUntilStopped();}
+
+        pipeline.shutDown();
+
+        logSummary(String.format("Finished in %.1f ms",
+                                        (System.nanoTime() - start) / 1e6));
+
+        logSummary(StartupTimer.describe("Exiting"));
+
+    }
+    catch(InterruptedException e){
+        logError("Interrupted");
+    }
+    finally{
+        if (logFile != null) {logFile.close();}
+    }
+
+    return(errorCount > 0 ? 1 : 0);
+
+}//end of HeadlessController::run
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::parseArguments
+//
+// Sets the options from the command line. Returns false if an argument is
+// not recognized.
+//
+
+private boolean parseArguments()
+{
+
+    for (int i = 0; i < args.length; i++){
+
+        String arg = args[i];
+
+        if ("--rebuild-all".equals(arg)) {rebuildAll = true;}
+        else if ("--rebuild-changed".equals(arg)) {rebuildAll = false;}
+        else if ("--fetch".equals(arg)) {fetch = true;}
+        else if ("--serve".equals(arg)) {serve = true;}
+        else if ("--watch".equals(arg)) {watch = true;}
+        else if ("--quiet".equals(arg)) {quiet = true;}
+        else if ("--help".equals(arg)) {help = true;}
+        else if ("--log".equals(arg) && i + 1 < args.length){
+            logFilename = args[++i];
+        }
+        else {return(false);}
+
+    }
+
+    return(true);
+
+}//end of HeadlessController::parseArguments
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::fetchFeeds
+//
+// Fetches every feed in the feed registry once through the pipeline's feed
+// poller and waits for all to finish, so the rebuild which follows picks up
+// the changed content. A feed which fails is logged as an error.
+//
+
+private void fetchFeeds() throws InterruptedException
+{
+
+    if (options.feeds.isEmpty()){
+        logLine("No Remote Page URL or feeds are set in "
+                                                + Options.SETTINGS_FILENAME);
+        return;
+    }
+
+    pipeline.fetchFeeds();
+
+    logLine(pipeline.remoteFetcher.getStatistics());
+
+}//end of HeadlessController::fetchFeeds
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::startPageServer
+//
+// Starts the embedded server which serves the processed pages and the
+// metrics. Returns false if the server could not be started.
+//
+
+private boolean startPageServer()
+{
+
+    if (options.httpServerPort <= 0){
+        logError("--serve requires an HTTP Server Port in "
+                                                + Options.SETTINGS_FILENAME);
+        return(false);
+    }
+
+    return(pipeline.startPageServer());
+
+}//end of HeadlessController::startPageServer
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::runUntilStopped
+//
+// Polls the feeds if serving and watches the folders if requested,
+// rebuilding the pages affected by any change, and waits until the process
+// is stopped. A shutdown hook then stops everything and writes a final
+// metrics snapshot.
+//
+// Rebuilds run one at a time; changes which arrive during one are handled
+// by another which follows it.
+//
+
+private void runUntilStopped() throws InterruptedException
+{
+
+    if (serve) {pipeline.startFeedPoller();}
+
+    if (watch) {pipeline.startFileWatcher();}
+
+    Runtime.getRuntime().addShutdownHook(new Thread("Shut Down") {
+        @Override
+        public void run() {
+            stopRunning();
+        }});
+
+    logLine((serve ? "Serving" : "Watching") + " until stopped");
+
+    //the shutdown hook ends the process while this thread waits
+    new CountDownLatch(1).await();
+
+}//end of HeadlessController::runUntilStopped
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::stopRunning
+//
+// Stops polling, watching, and serving, writes a final metrics snapshot,
+// and closes the log file. Called by the shutdown hook.
+//
+
+private void stopRunning()
+{
+
+    pipeline.shutDown();
+
+    logSummary(pipeline.metrics.getMetrics().getSnapshot());
+    logSummary(StartupTimer.describe("Exiting"));
+
+    synchronized(this){
+        if (logFile != null) {logFile.close(); logFile = null;}
+    }
+
+}//end of HeadlessController::stopRunning
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::openLogFile
+//
+// Opens the log file, if one was requested, for appending.
+//
+
+private void openLogFile()
+{
+
+    if (logFilename == null) {return;}
+
+    try{
+        logFile = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                                    new FileOutputStream(logFilename, true),
+                                    StandardCharsets.UTF_8)));
+    }
+    catch(IOException e){
+        logError("Error opening log file " + logFilename + ": "
+                                                            + e.getMessage());
+    }
+
+}//end of HeadlessController::openLogFile
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::logLine
+//
+// Writes an informational message unless running quietly. Thread safe.
+//
+
+@Override
+public void logLine(String pMessage)
+{
+
+    if (!quiet) {write(System.out, pMessage);}
+
+}//end of HeadlessController::logLine
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::logSummary
+//
+// Writes a message which is shown even when running quietly. Thread safe.
+//
+
+private void logSummary(String pMessage)
+{
+
+    write(System.out, pMessage);
+
+}//end of HeadlessController::logSummary
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::logError
+//
+// Writes an error message and counts it toward the exit status. Thread safe.
+//
+
+@Override
+public synchronized void logError(String pMessage)
+{
+
+    errorCount++;
+
+    write(System.err, pMessage);
+
+}//end of HeadlessController::logError
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::rebuildStarted
+//
+
+@Override
+public void rebuildStarted()
+{
+
+}//end of HeadlessController::rebuildStarted
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::pageFinished
+//
+// Page timing is only kept in the metrics when running headless.
+//
+
+@Override
+public void pageFinished(String pName, long pWaitNanos, long pRunNanos,
+                                        boolean pCancelled, Throwable pError)
+{
+
+}//end of HeadlessController::pageFinished
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::rebuildFinished
+//
+// Reports the errors and the results of a rebuild. Called on the control
+// thread.
+//
+
+@Override
+public void rebuildFinished(RebuildSummary pSummary)
+{
+
+    for (String error : pSummary.errors) {logError(error);}
+
+    logSummary(pSummary.toString());
+    logLine(pipeline.contentEngine.getFragmentCache().getStatistics());
+
+}//end of HeadlessController::rebuildFinished
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HeadlessController::write
+//
+// Writes pMessage to pConsole and to the log file if there is one.
+//
+
+private synchronized void write(PrintStream pConsole, String pMessage)
+{
+
+    pConsole.println(pMessage);
+
+    if (logFile != null){
+        logFile.println(pMessage);
+        logFile.flush();
+    }
+
+}//end of HeadlessController::write
+//-----------------------------------------------------------------------------
+
+}//end of class HeadlessController
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
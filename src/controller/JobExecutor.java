@@ -0,0 +1,403 @@
+/******************************************************************************
+* Title: JobExecutor.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class runs background jobs for the Controller on a fixed number of
+* worker threads.
+*
+* The number of jobs waiting to be run is limited. When the queue is full,
+* submit blocks the calling thread until a job finishes, so a thread which
+* submits thousands of jobs is slowed to the rate at which they are
+* processed rather than filling memory with waiting jobs. Since it may block,
+* submit must never be called from the GUI thread -- use trySubmit there.
+*
+* All queued and running jobs can be cancelled at once, and a JobListener is
+* told how long each job waited and ran. A cancelled job which is running
+* keeps its place and is not reported until it has actually stopped, so the
+* listener never sees a job as done while it may still be writing.
+*
+* Jobs may instead be run with each job on its own virtual thread. This suits
+* jobs which spend most of their time waiting on file reads or network
+* fetches: tens of thousands can be in flight without tying up a platform
+* thread each. In that mode the limit is on the number of jobs in flight
+* rather than on waiting jobs. Virtual threads require Java 21 or later; they
+* are looked up by reflection so the program still builds and runs on
+* earlier versions, where the platform thread pool is used instead.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package controller;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class JobExecutor
+//
+
+public class JobExecutor extends Object{
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class Job
+//
+// Wraps a Runnable with its name, listener, and timing information.
+//
+
+class Job extends FutureTask<Void> {
+
+    String name;
+    JobListener listener;
+
+    long submitTime;
+    volatile long startTime = 0;
+
+    //set by whichever of run or done takes charge of finishing the job, so
+    //it is finished exactly once
+    final AtomicBoolean claimed = new AtomicBoolean(false);
+
+//-----------------------------------------------------------------------------
+// Job::Job (constructor)
+//
+
+public Job(String pName, Runnable pRunnable, JobListener pListener)
+{
+
+    super(pRunnable, null);
+
+    name = pName; listener = pListener;
+
+    submitTime = System.nanoTime();
+
+}// end of Job::Job (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Job::run
+//
+// Runs the job and then finishes it. This is done here rather than in done,
+// which FutureTask calls as soon as a running job is cancelled even though
+// the job may go on running until it notices the interrupt.
+//
+
+@Override
+public void run()
+{
+
+    if (!claimed.compareAndSet(false, true)) {return;}
+
+    startTime = System.nanoTime();
+
+    try{
+        super.run();
+    }
+    finally{
+        finish();
+    }
+
+}// end of Job::run
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Job::done
+//
+// Called by FutureTask when the job completes, fails, or is cancelled. A job
+// cancelled before it started will never be run, so it is finished here;
+// otherwise run finishes it once it has returned.
+//
+
+@Override
+protected void done()
+{
+
+    if (claimed.compareAndSet(false, true)) {finish();}
+
+}// end of Job::done
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Job::finish
+//
+// Frees the job's place in the queue and notifies the listener.
+//
+
+private void finish()
+{
+
+    long now = System.nanoTime();
+
+    active.remove(this);
+    slots.release();
+
+    long waitNanos = 0, runNanos = 0;
+
+    if (startTime != 0){
+        waitNanos = startTime - submitTime;
+        runNanos = now - startTime;
+    }
+
+    Throwable error = null;
+
+    if (!isCancelled()){
+        try{
+            get();
+        }
+        catch(ExecutionException e){
+            error = e.getCause();
+        }
+        catch(InterruptedException e){}
+    }
+
+    if (listener != null){
+        listener.jobFinished(name, waitNanos, runNanos, isCancelled(), error);
+    }
+
+}// end of Job::finish
+//-----------------------------------------------------------------------------
+
+}//end of class Job
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+
+    int parallelism;
+    int queueCapacity;
+    boolean virtualThreadsRequested;
+
+    ExecutorService executor;
+    boolean usingVirtualThreads = false;
+
+    //one permit for each job which may be running or waiting
+    Semaphore slots;
+
+    //jobs which have been submitted but are not yet done
+    Set<Job> active;
+
+//-----------------------------------------------------------------------------
+// JobExecutor::JobExecutor (constructor)
+//
+// pParallelism is the number of worker threads; pQueueCapacity is the number
+// of jobs which may wait for a free worker before submit blocks.
+//
+// If pVirtualThreads is true and virtual threads are available, each job is
+// run on its own virtual thread, pParallelism is ignored, and pQueueCapacity
+// is the number of jobs which may be in flight before submit blocks.
+//
+
+public JobExecutor(int pParallelism, int pQueueCapacity,
+                                                       boolean pVirtualThreads)
+{
+
+    parallelism = pParallelism; queueCapacity = pQueueCapacity;
+    virtualThreadsRequested = pVirtualThreads;
+
+}//end of JobExecutor::JobExecutor (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// JobExecutor::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+
+public void init()
+{
+
+    active = Collections.newSetFromMap(new ConcurrentHashMap<Job, Boolean>());
+
+    if (virtualThreadsRequested) {executor = createVirtualThreadExecutor();}
+
+    if (executor != null){
+        usingVirtualThreads = true;
+        slots = new Semaphore(queueCapacity);
+        return;
+    }
+
+    slots = new Semaphore(parallelism + queueCapacity);
+
+    final AtomicInteger threadCount = new AtomicInteger(0);
+
+    //the executor's own queue is unbounded -- the semaphore enforces the
+    //limit so cancelled jobs still waiting in the queue do not count
+
+    executor = new ThreadPoolExecutor(parallelism, parallelism,
+        60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable pRunnable) {
+                Thread thread = new Thread(pRunnable,
+                                    "Worker " + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return(thread);
+            }});
+
+}//end of JobExecutor::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// JobExecutor::createVirtualThreadExecutor
+//
+// Returns an executor which starts a new virtual thread for each job or null
+// if virtual threads are not supported by the running Java version.
+//
+
+private static ExecutorService createVirtualThreadExecutor()
+{
+
+    try{
+        return((ExecutorService)Executors.class.getMethod(
+                        "newVirtualThreadPerTaskExecutor").invoke(null));
+    }
+    catch(ReflectiveOperationException e){
+        return(null);
+    }
+
+}//end of JobExecutor::createVirtualThreadExecutor
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// JobExecutor::isUsingVirtualThreads
+//
+// Returns true if jobs are being run on virtual threads.
+//
+
+public boolean isUsingVirtualThreads()
+{
+
+    return(usingVirtualThreads);
+
+}//end of JobExecutor::isUsingVirtualThreads
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// JobExecutor::submit
+//
+// Queues pJob to be run on a worker thread. If the queue is full, blocks
+// until there is room. pListener, which may be null, is notified when the
+// job is done.
+//
+
+public Future<Void> submit(String pName, Runnable pJob, JobListener pListener)
+                                                    throws InterruptedException
+{
+
+    slots.acquire();
+
+    return(execute(new Job(pName, pJob, pListener)));
+
+}//end of JobExecutor::submit
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// JobExecutor::trySubmit
+//
+// Queues pJob to be run on a worker thread if there is room in the queue.
+// Returns null without queueing the job if the queue is full. Safe to call
+// from the GUI thread.
+//
+
+public Future<Void> trySubmit(String pName, Runnable pJob,
+                                                        JobListener pListener)
+{
+
+    if (!slots.tryAcquire()) {return(null);}
+
+    return(execute(new Job(pName, pJob, pListener)));
+
+}//end of JobExecutor::trySubmit
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// JobExecutor::execute
+//
+// Hands pJob to the thread pool. The caller must already hold a slot.
+//
+
+private Future<Void> execute(Job pJob)
+{
+
+    active.add(pJob);
+
+    try{
+        executor.execute(pJob);
+    }
+    catch(RejectedExecutionException e){
+        //executor has been shut down
+        pJob.cancel(false);
+    }
+
+    return(pJob);
+
+}//end of JobExecutor::execute
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// JobExecutor::cancelAll
+//
+// Cancels every queued job and interrupts every running job. Returns the
+// number of jobs cancelled. Running jobs are reported to their listeners
+// when they stop, which may be after this returns.
+//
+
+public int cancelAll()
+{
+
+    int count = 0;
+
+    for (Job job : new ArrayList<Job>(active)){
+        if (job.cancel(true)) {count++;}
+    }
+
+    //remove the cancelled jobs from the executor's queue
+    if (executor instanceof ThreadPoolExecutor){
+        ((ThreadPoolExecutor)executor).purge();
+    }
+
+    return(count);
+
+}//end of JobExecutor::cancelAll
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// JobExecutor::getQueueDepth
+//
+// Returns the number of jobs which have been submitted but are not yet done.
+//
+
+public int getQueueDepth()
+{
+
+    return(active.size());
+
+}//end of JobExecutor::getQueueDepth
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// JobExecutor::shutDown
+//
+// Stops the worker threads after all queued jobs have been run.
+//
+
+public void shutDown()
+{
+
+    executor.shutdown();
+
+}//end of JobExecutor::shutDown
+//-----------------------------------------------------------------------------
+
+}//end of class JobExecutor
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
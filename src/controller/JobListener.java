@@ -0,0 +1,44 @@
+/******************************************************************************
+* Title: JobListener.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This interface is implemented by classes which need to be notified when a
+* job run by a JobExecutor has finished, been cancelled, or failed.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package controller;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// interface JobListener
+//
+
+public interface JobListener {
+
+//-----------------------------------------------------------------------------
+// JobListener::jobFinished
+//
+// Called when job pName is done -- on the worker thread which ran it or on
+// the thread which cancelled it. pWaitNanos is the time spent waiting in the
+// queue and pRunNanos is the time spent running; both are zero if the job
+// was cancelled before it started. pError is the exception thrown by the job
+// or null if it completed normally.
+//
+
+public void jobFinished(String pName, long pWaitNanos, long pRunNanos,
+                                        boolean pCancelled, Throwable pError);
+
+}//end of interface JobListener
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,683 @@
+/******************************************************************************
+* Title: Pipeline.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class creates and wires together the parts of the content processing
+* pipeline which are shared by the GUI Controller and the HeadlessController:
+* the ContentEngine, the worker threads, the control thread, the remote feed
+* fetcher and poller, the embedded page server, the file watcher, and the
+* metrics.
+*
+* It also runs the rebuilds. Only one rebuild runs at a time; a feed or
+* watched file which changes during a rebuild causes another to follow it.
+* While the folders are watched, only the files reported as changed are
+* checked.
+*
+* Messages and rebuild progress are passed to a PipelineListener so each
+* controller can report them in its own way.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.*;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class Pipeline
+//
+
+public class Pipeline extends Object{
+
+    Options options;
+    boolean remoteFeeds;
+    PipelineListener listener;
+
+    ContentEngine contentEngine;
+    JobExecutor jobExecutor;
+    JobExecutor fetchExecutor;
+    Scheduler scheduler;
+    RemoteFetcher remoteFetcher;
+    RemoteContentParser remoteContentParser;
+    PipelineMetrics metrics;
+
+    FeedPoller feedPoller;
+    PageServer pageServer;
+    FileWatcher fileWatcher;
+
+    final AtomicBoolean rebuildInProgress = new AtomicBoolean(false);
+
+    //set when a feed or watched file changes during a rebuild so another
+    //follows it
+    final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+    volatile boolean cancelRequested = false;
+
+    //the thread submitting the jobs of the current rebuild, if it is still
+    //doing so
+    volatile Thread rebuildThread;
+
+    //files reported by the file watcher which have not yet been rebuilt --
+    //if changes were lost, every file is checked instead
+    final LinkedHashSet<File> watchedChanges = new LinkedHashSet<File>();
+    boolean watchedChangesLost = false;
+
+//-----------------------------------------------------------------------------
+// Pipeline::Pipeline (constructor)
+//
+// If pRemoteFeeds is false, the remote fetcher and parser are not created
+// and the feeds cannot be fetched.
+//
+
+public Pipeline(Options pOptions, boolean pRemoteFeeds,
+                                                PipelineListener pListener)
+{
+
+    options = pOptions; remoteFeeds = pRemoteFeeds; listener = pListener;
+
+}//end of Pipeline::Pipeline (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+// Creates the engine, the worker threads, the control thread, and the
+// metrics. The feed poller, page server, and file watcher are started
+// separately as each controller requires.
+//
+
+public void init()
+{
+
+    PipelineEvents.setEnabled(options.jfrEvents);
+
+    //create the engine which inserts content into pages -- this loads the
+    //dependency graph saved by the previous run
+    contentEngine = new ContentEngine(options);
+    try{
+        contentEngine.init();
+    }
+    catch(IOException e){
+        listener.logError("Error loading dependency graph: " + e.getMessage());
+    }
+
+    //create the worker threads which run background jobs such as processing
+    //pages
+    jobExecutor = new JobExecutor(options.workerThreads,
+                        options.jobQueueCapacity, options.useVirtualThreads);
+    jobExecutor.init();
+
+    if (options.useVirtualThreads && !jobExecutor.isUsingVirtualThreads()){
+        listener.logLine("Virtual threads require Java 21 or later --"
+                                          + " using the worker thread pool.");
+    }
+
+    //create the control thread which finishes the rebuilds and runs the feed
+    //polls and any periodic tasks
+    scheduler = new Scheduler(new SchedulerListener() {
+        @Override
+        public void jobFailed(Throwable pError) {
+            listener.logError("Error in control thread job: " + pError);
+        }});
+    scheduler.init();
+
+    if (remoteFeeds){
+
+        //create the threads which fetch the remote feeds -- kept apart from
+        //the page workers so fetches are never turned away by a full page
+        //queue and slow servers never hold up the pages
+        fetchExecutor = new JobExecutor(options.maxFeedRequests,
+                        options.maxFeedRequests, options.useVirtualThreads);
+        fetchExecutor.init();
+
+        //create the fetcher for remote feeds -- it keeps connections to
+        //servers open between fetches
+        remoteFetcher = new RemoteFetcher(
+                            options.remoteCacheFolder, options.remoteTimeout);
+        remoteFetcher.init();
+
+        //create the parser which copies elements of the feeds into fragments
+        remoteContentParser = new RemoteContentParser(options.fragmentFolder);
+        remoteContentParser.init();
+
+    }
+
+    //create the metrics shown on the main window and served by the page
+    //server
+    metrics = new PipelineMetrics(jobExecutor, contentEngine, remoteFetcher);
+    metrics.init();
+
+}//end of Pipeline::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::fetchFeeds
+//
+// Fetches every feed in the feed registry once, no more than the configured
+// number at a time, and waits for all to finish. Changed content is streamed
+// into the fragments; unless the feeds are being polled, no rebuild is
+// started for it so the rebuild which follows picks it up.
+//
+
+public void fetchFeeds() throws InterruptedException
+{
+
+    createFeedPoller();
+
+    feedPoller.fetchAll();
+
+}//end of Pipeline::fetchFeeds
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::startFeedPoller
+//
+// Starts polling the feeds in the feed registry, each on its own schedule.
+// When a feed's content changes, the pages which include it are rebuilt.
+//
+
+public void startFeedPoller()
+{
+
+    createFeedPoller();
+
+    feedPoller.startPolling();
+
+}//end of Pipeline::startFeedPoller
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::createFeedPoller
+//
+// Creates the poller for the feeds in the feed registry unless it already
+// exists. Its fetches are logged and counted in the metrics.
+//
+
+private void createFeedPoller()
+{
+
+    if (feedPoller != null) {return;}
+
+    feedPoller = new FeedPoller(options.feeds, options.maxFeedRequests,
+        scheduler, fetchExecutor, remoteFetcher, remoteContentParser,
+        new FeedListener() {
+            @Override
+            public void feedFetched(Feed pFeed, boolean pChanged,
+                                         ArrayList<String> pFragments) {
+                metrics.feedFetched(pChanged);
+                if (!pChanged){
+                    listener.logLine("Feed not modified: " + pFeed.name);
+                    return;
+                }
+                listener.logLine("Feed changed: " + pFeed.name + " -- "
+                            + pFragments.size() + " fragments updated");
+                if (!pFragments.isEmpty() && feedPoller.isPolling()){
+                    requestRebuildChanged();
+                }
+            }
+            @Override
+            public void feedFailed(Feed pFeed, String pMessage,
+                                                          long pRetryDelay) {
+                metrics.feedFailed();
+                String retry = pRetryDelay < 0 ? "" :
+                        " -- retrying in " + (pRetryDelay / 1000) + " s";
+                listener.logError("Error fetching " + pFeed.name + ": "
+                                                        + pMessage + retry);
+            }});
+
+}//end of Pipeline::createFeedPoller
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::startPageServer
+//
+// Starts the embedded server which serves the processed pages from memory
+// and the metrics. Pages are added to its store by the content engine as
+// they are rebuilt or, when rendering on demand, rendered by the engine when
+// first requested. Returns false if the server could not be started.
+//
+
+public boolean startPageServer()
+{
+
+    PageStore pageStore = new PageStore(options.outputFolder,
+                    options.pageStoreBudget, options.largePageThreshold);
+    pageStore.init();
+
+    pageServer = new PageServer(pageStore, options.httpServerAddress,
+                        options.httpServerPort, options.httpServerThreads);
+
+    if (!options.metricsPath.isEmpty()){
+        pageServer.setMetrics(metrics.getMetrics(), options.metricsPath);
+    }
+
+    try{
+        pageServer.init();
+    }
+    catch(IOException e){
+        listener.logError("Error starting page server on port "
+                            + options.httpServerPort + ": " + e.getMessage());
+        pageServer = null;
+        return(false);
+    }
+
+    contentEngine.setPageStore(pageStore);
+
+    if (options.renderOnDemand) {pageStore.setRenderEngine(contentEngine);}
+
+    metrics.addPageServer(pageServer);
+
+    listener.logLine("Serving pages at " + pageServer.getURL()
+                + (options.renderOnDemand ? " -- rendering on demand" : ""));
+
+    if (!options.metricsPath.isEmpty()){
+        listener.logLine("Serving metrics at " + pageServer.getURL()
+                                        + options.metricsPath.substring(1));
+    }
+
+    return(true);
+
+}//end of Pipeline::startPageServer
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::startFileWatcher
+//
+// Starts watching the source and fragment folders and the settings file.
+// When files change, the pages affected by them are rebuilt.
+//
+
+public void startFileWatcher()
+{
+
+    fileWatcher = new FileWatcher(scheduler, options.watchDebounce,
+        new FileWatchListener() {
+            @Override
+            public void filesChanged(ArrayList<File> pFiles) {
+                watchedFilesChanged(pFiles);
+            }});
+
+    fileWatcher.addFolder(options.sourceFolder);
+    fileWatcher.addFolder(options.fragmentFolder);
+    fileWatcher.addFile(Options.SETTINGS_FILENAME);
+
+    try{
+        fileWatcher.init();
+    }
+    catch(IOException e){
+        listener.logError("Error watching folders: " + e.getMessage());
+        fileWatcher = null;
+        return;
+    }
+
+    listener.logLine("Watching " + fileWatcher.getFolderCount()
+                                                + " folders for changes");
+
+}//end of Pipeline::startFileWatcher
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::watchedFilesChanged
+//
+// Records the files reported by the file watcher and requests a rebuild of
+// the pages they affect. pFiles is empty if changes were lost. Runs on the
+// control thread.
+//
+
+private void watchedFilesChanged(ArrayList<File> pFiles)
+{
+
+    if (pFiles.remove(new File(Options.SETTINGS_FILENAME))){
+        listener.logLine(Options.SETTINGS_FILENAME
+                          + " changed -- restart to apply the new settings.");
+        if (pFiles.isEmpty()) {return;}
+    }
+
+    //pages rendered on demand are rendered again when next requested
+    if (isRenderingOnDemand()) {return;}
+
+    synchronized(watchedChanges){
+        if (pFiles.isEmpty()) {watchedChangesLost = true;}
+        watchedChanges.addAll(pFiles);
+    }
+
+    requestRebuildChanged();
+
+}//end of Pipeline::watchedFilesChanged
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::takeWatchedChanges
+//
+// Returns the files reported by the file watcher since the last rebuild and
+// clears them. Returns null if there are none or changes were lost, in which
+// case every file must be checked.
+//
+// While the folders are watched, every change is in the list, so only those
+// files need be checked no matter what requested the rebuild.
+//
+
+private ArrayList<File> takeWatchedChanges()
+{
+
+    synchronized(watchedChanges){
+
+        ArrayList<File> changes = watchedChanges.isEmpty()
+           || watchedChangesLost ? null : new ArrayList<File>(watchedChanges);
+
+        watchedChanges.clear();
+        watchedChangesLost = false;
+
+        return(changes);
+
+    }
+
+}//end of Pipeline::takeWatchedChanges
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::isRenderingOnDemand
+//
+// Returns true if the page server is rendering the pages when requested
+// rather than serving rebuilt pages.
+//
+
+private boolean isRenderingOnDemand()
+{
+
+    return(pageServer != null && options.renderOnDemand);
+
+}//end of Pipeline::isRenderingOnDemand
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::rebuildPages
+//
+// Inserts content into the source pages in the background. If pRebuildAll is
+// true, every page is processed; otherwise only the pages affected by
+// changed pages or fragments are processed as determined by the dependency
+// graph.
+//
+// A thread started for the rebuild finds the pages to be processed and
+// submits each one as a job to the worker threads. It is blocked whenever the
+// job queue is full, so it is never the control thread: that must stay free
+// to run the display updates, feed polls, and shut down while a large rebuild
+// is in progress. The listener is told when the rebuild starts and finishes.
+//
+// Only one rebuild is allowed at a time. Returns false without starting one
+// if a rebuild is already in progress. This is thread safe and may be called
+// from any thread.
+//
+
+public boolean rebuildPages(final boolean pRebuildAll)
+{
+
+    if (!rebuildInProgress.compareAndSet(false, true)) {return(false);}
+
+    rebuildPending.set(false);
+
+    cancelRequested = false;
+
+    listener.rebuildStarted();
+
+    Thread thread = new Thread("Rebuild") {
+        @Override
+        public void run() {
+            try{
+                submitRebuildJobs(pRebuildAll);
+            }
+            finally{
+                rebuildThread = null;
+            }
+        }};
+
+    thread.setDaemon(true);
+
+    rebuildThread = thread;
+
+    thread.start();
+
+    return(true);
+
+}//end of Pipeline::rebuildPages
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::requestRebuildChanged
+//
+// Starts a rebuild of the changed pages or, if a rebuild is already in
+// progress, starts one as soon as it finishes. May be called from any
+// thread.
+//
+// The pending flag is set first so the request cannot be lost if the
+// current rebuild finishes in between.
+//
+// When pages are rendered on demand nothing is done: each page is rendered
+// again on its next request once any file it uses has changed.
+//
+
+public void requestRebuildChanged()
+{
+
+    if (isRenderingOnDemand()) {return;}
+
+    rebuildPending.set(true);
+
+    if (!rebuildInProgress.get()) {rebuildPages(false);}
+
+}//end of Pipeline::requestRebuildChanged
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::waitForRebuild
+//
+// Blocks the calling thread until no rebuild is in progress.
+//
+
+public synchronized void waitForRebuild() throws InterruptedException
+{
+
+    while (rebuildInProgress.get()) {wait();}
+
+}//end of Pipeline::waitForRebuild
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::submitRebuildJobs
+//
+// Submits a job for each page to be rebuilt. Runs on the rebuild's own
+// thread, which is blocked whenever the job queue is full. If the rebuild
+// cannot be started, the error is recorded in its summary and it is
+// finished at once.
+//
+// The rebuild is finished by whichever thread sees the last job finish. An
+// extra count is held until all jobs have been submitted so that jobs which
+// finish quickly cannot finish the rebuild early.
+//
+
+private void submitRebuildJobs(boolean pRebuildAll)
+{
+
+    final RebuildSummary summary = new RebuildSummary();
+
+    ArrayList<File> pages;
+
+    //a failure before any job is submitted must still finish the rebuild or
+    //it would stay in progress forever
+
+    try{
+        ArrayList<File> changes = takeWatchedChanges();
+        pages = pRebuildAll || changes == null ?
+                            contentEngine.startRebuild(pRebuildAll, summary) :
+                            contentEngine.startRebuild(changes, summary);
+    }
+    catch(Throwable e){
+        summary.addError("Error starting rebuild: " + e);
+        finishRebuild(summary);
+        return;
+    }
+
+    final AtomicInteger remaining = new AtomicInteger(pages.size() + 1);
+
+    JobListener jobListener = new JobListener() {
+        @Override
+        public void jobFinished(String pName, long pWaitNanos, long pRunNanos,
+                                      boolean pCancelled, Throwable pError) {
+
+            listener.pageFinished(
+                            pName, pWaitNanos, pRunNanos, pCancelled, pError);
+
+            metrics.pageFinished(pWaitNanos, pRunNanos, pCancelled, pError);
+
+            if (pCancelled) {summary.addPageCancelled();}
+            else if (pError != null){
+                summary.addError("Error processing " + pName + ": " + pError);
+            }
+
+            if (remaining.decrementAndGet() == 0) {finishRebuild(summary);}
+
+        }};
+
+    int submitted = 0;
+
+    for (final File page : pages){
+
+        if (cancelRequested) {break;}
+
+        try{
+            jobExecutor.submit(page.getPath(),
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        contentEngine.processPage(page, summary);
+                    } },
+                jobListener);
+        }
+        catch(InterruptedException e){
+            break;
+        }
+        catch(RuntimeException e){
+            summary.addError("Error submitting " + page + ": " + e);
+            break;
+        }
+
+        submitted++;
+
+    }
+
+    //pages never submitted because of cancellation or an error count as
+    //cancelled
+
+    for (int i = submitted; i < pages.size(); i++) {summary.addPageCancelled();}
+
+    if (remaining.addAndGet(-(pages.size() - submitted) - 1) == 0){
+        finishRebuild(summary);
+    }
+
+}//end of Pipeline::submitRebuildJobs
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::finishRebuild
+//
+// Queues a job on the control thread to save the dependency graph and report
+// the results of the rebuild. If a rebuild was requested while this one was
+// in progress, it is started. May be called from any thread.
+//
+
+private void finishRebuild(final RebuildSummary pSummary)
+{
+
+    scheduler.submit(
+        new Runnable() {
+            @Override
+            public void run() {
+
+                try{
+                    contentEngine.finishRebuild(pSummary);
+                }
+                catch(RuntimeException e){
+                    pSummary.addError("Error finishing rebuild: " + e);
+                }
+
+                listener.rebuildFinished(pSummary);
+
+                synchronized(Pipeline.this){
+                    rebuildInProgress.set(false);
+                    Pipeline.this.notifyAll();
+                }
+
+                if (rebuildPending.getAndSet(false)) {rebuildPages(false);}
+
+            } });
+
+}//end of Pipeline::finishRebuild
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::cancelJobs
+//
+// Cancels all queued and running background jobs and stops any rebuild from
+// submitting more. Returns the number of jobs cancelled.
+//
+// The rebuild is finished once every job it submitted has stopped.
+//
+
+public int cancelJobs()
+{
+
+    cancelRequested = true;
+
+    //wake the rebuild's thread if it is waiting for room in the queue
+    Thread thread = rebuildThread;
+    if (thread != null) {thread.interrupt();}
+
+    int count = jobExecutor.cancelAll();
+
+    if (fetchExecutor != null) {count += fetchExecutor.cancelAll();}
+
+    return(count);
+
+}//end of Pipeline::cancelJobs
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Pipeline::shutDown
+//
+// Stops polling, watching, and serving, then stops the control thread and
+// the worker threads after any queued jobs have been run.
+//
+
+public void shutDown()
+{
+
+    if (feedPoller != null) {feedPoller.stop();}
+    if (fileWatcher != null) {fileWatcher.stop();}
+    if (pageServer != null) {pageServer.shutDown();}
+    scheduler.shutDown();
+    jobExecutor.shutDown();
+    if (fetchExecutor != null) {fetchExecutor.shutDown();}
+
+}//end of Pipeline::shutDown
+//-----------------------------------------------------------------------------
+
+}//end of class Pipeline
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,77 @@
+/******************************************************************************
+* Title: PipelineListener.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This interface is implemented by the controllers which run a Pipeline so
+* they can report its messages and the progress of its rebuilds in their own
+* way.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package controller;
+
+import model.RebuildSummary;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// interface PipelineListener
+//
+
+public interface PipelineListener {
+
+//-----------------------------------------------------------------------------
+// PipelineListener::logLine
+//
+// Called with an informational message. May be called from any thread.
+//
+
+public void logLine(String pMessage);
+
+//-----------------------------------------------------------------------------
+// PipelineListener::logError
+//
+// Called with an error message. May be called from any thread.
+//
+
+public void logError(String pMessage);
+
+//-----------------------------------------------------------------------------
+// PipelineListener::rebuildStarted
+//
+// Called when a rebuild of the pages starts. May be called from any thread.
+//
+
+public void rebuildStarted();
+
+//-----------------------------------------------------------------------------
+// PipelineListener::pageFinished
+//
+// Called on a worker thread when the job processing page pName is done. The
+// arguments are those of JobListener::jobFinished.
+//
+
+public void pageFinished(String pName, long pWaitNanos, long pRunNanos,
+                                        boolean pCancelled, Throwable pError);
+
+//-----------------------------------------------------------------------------
+// PipelineListener::rebuildFinished
+//
+// Called on the control thread when every page of a rebuild is done and the
+// dependency graph has been saved. pSummary holds the results.
+//
+
+public void rebuildFinished(RebuildSummary pSummary);
+
+}//end of interface PipelineListener
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,265 @@
+/******************************************************************************
+* Title: PipelineMetrics.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class creates the metrics registry for the content pipeline and
+* records into it. It is shared by the Controller and the
+* HeadlessController so both report the same metrics.
+*
+* Counters and histograms are updated as page jobs and feed fetches finish;
+* gauges read the job queue depth, cache counts, byte counts, and fetch
+* counts from the objects which keep them.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package controller;
+
+import model.*;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class PipelineMetrics
+//
+
+public class PipelineMetrics extends Object{
+
+    JobExecutor jobExecutor;
+    ContentEngine contentEngine;
+    RemoteFetcher remoteFetcher;
+
+    Metrics metrics;
+
+    Metrics.Counter pagesProcessed, pagesFailed, pagesCancelled;
+    Metrics.Counter feedsFetched, feedsChanged, feedsFailed;
+    Metrics.Histogram pageTimes, jobWaitTimes;
+
+//-----------------------------------------------------------------------------
+// PipelineMetrics::PipelineMetrics (constructor)
+//
+// pRemoteFetcher may be null if remote feeds are not used.
+//
+
+public PipelineMetrics(JobExecutor pJobExecutor, ContentEngine pContentEngine,
+                                                RemoteFetcher pRemoteFetcher)
+{
+
+    jobExecutor = pJobExecutor; contentEngine = pContentEngine;
+    remoteFetcher = pRemoteFetcher;
+
+}//end of PipelineMetrics::PipelineMetrics (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PipelineMetrics::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+// Creates the registry and its metrics.
+//
+
+public void init()
+{
+
+    metrics = new Metrics();
+    metrics.init();
+
+    pagesProcessed = metrics.counter("pages.processed");
+    pagesFailed = metrics.counter("pages.failed");
+    pagesCancelled = metrics.counter("pages.cancelled");
+    pageTimes = metrics.histogram("pages.processTime");
+    jobWaitTimes = metrics.histogram("jobs.waitTime");
+
+    metrics.register("jobs.queued", new Metrics.Gauge() {
+        @Override
+        public double getValue() { return(jobExecutor.getQueueDepth()); } });
+
+    metrics.register("bytes.read", new Metrics.Gauge() {
+        @Override
+        public double getValue() {
+            return(contentEngine.getTemplateCache().getBytesRead()); } });
+
+    metrics.register("bytes.written", new Metrics.Gauge() {
+        @Override
+        public double getValue() {
+            return(contentEngine.getBytesWritten()); } });
+
+    metrics.register("pages.notWritten", new Metrics.Gauge() {
+        @Override
+        public double getValue() {
+            return(contentEngine.getPagesNotWritten()); } });
+
+    final TemplateCache templates = contentEngine.getTemplateCache();
+
+    metrics.register("templates.hits", new Metrics.Gauge() {
+        @Override
+        public double getValue() { return(templates.getHits()); } });
+
+    metrics.register("templates.misses", new Metrics.Gauge() {
+        @Override
+        public double getValue() { return(templates.getMisses()); } });
+
+    metrics.register("templates.bytes", new Metrics.Gauge() {
+        @Override
+        public double getValue() { return(templates.getTotalBytes()); } });
+
+    metrics.register("templates.hitRatio", new Metrics.Gauge() {
+        @Override
+        public double getValue() {
+            return(ratio(templates.getHits(), templates.getMisses())); } });
+
+    final FragmentCache fragments = contentEngine.getFragmentCache();
+
+    metrics.register("fragments.hits", new Metrics.Gauge() {
+        @Override
+        public double getValue() { return(fragments.getHits()); } });
+
+    metrics.register("fragments.misses", new Metrics.Gauge() {
+        @Override
+        public double getValue() { return(fragments.getMisses()); } });
+
+    metrics.register("fragments.hitRatio", new Metrics.Gauge() {
+        @Override
+        public double getValue() {
+            return(ratio(fragments.getHits(), fragments.getMisses())); } });
+
+    feedsFetched = metrics.counter("feeds.fetched");
+    feedsChanged = metrics.counter("feeds.changed");
+    feedsFailed = metrics.counter("feeds.failed");
+
+    if (remoteFetcher == null) {return;}
+
+    metrics.register("fetch.requests", new Metrics.Gauge() {
+        @Override
+        public double getValue() { return(remoteFetcher.getFetchCount()); } });
+
+    metrics.register("fetch.errors", new Metrics.Gauge() {
+        @Override
+        public double getValue() { return(remoteFetcher.getErrorCount()); } });
+
+    metrics.register("fetch.bytesReceived", new Metrics.Gauge() {
+        @Override
+        public double getValue() {
+            return(remoteFetcher.getBytesReceived()); } });
+
+    metrics.register("fetch.requestTime", remoteFetcher.getRequestTimes());
+
+}//end of PipelineMetrics::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PipelineMetrics::addPageServer
+//
+// Adds gauges for the request and byte counts of pPageServer.
+//
+
+public void addPageServer(final PageServer pPageServer)
+{
+
+    metrics.register("server.requests", new Metrics.Gauge() {
+        @Override
+        public double getValue() { return(pPageServer.getRequestCount()); } });
+
+    metrics.register("server.notModified", new Metrics.Gauge() {
+        @Override
+        public double getValue() {
+            return(pPageServer.getNotModifiedCount()); } });
+
+    metrics.register("server.bytesSent", new Metrics.Gauge() {
+        @Override
+        public double getValue() { return(pPageServer.getBytesSent()); } });
+
+}//end of PipelineMetrics::addPageServer
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PipelineMetrics::getMetrics
+//
+
+public Metrics getMetrics()
+{
+
+    return(metrics);
+
+}//end of PipelineMetrics::getMetrics
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PipelineMetrics::pageFinished
+//
+// Records a finished page job. The parameters are those passed to
+// JobListener.jobFinished.
+//
+
+public void pageFinished(long pWaitNanos, long pRunNanos, boolean pCancelled,
+                                                            Throwable pError)
+{
+
+    if (pCancelled) {pagesCancelled.increment();}
+    else if (pError != null) {pagesFailed.increment();}
+    else{
+        pagesProcessed.increment();
+        pageTimes.record(pRunNanos);
+        jobWaitTimes.record(pWaitNanos);
+    }
+
+}//end of PipelineMetrics::pageFinished
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PipelineMetrics::feedFetched
+//
+// Records a successful feed fetch. pChanged is true if the feed changed.
+//
+
+public void feedFetched(boolean pChanged)
+{
+
+    feedsFetched.increment();
+
+    if (pChanged) {feedsChanged.increment();}
+
+}//end of PipelineMetrics::feedFetched
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PipelineMetrics::feedFailed
+//
+
+public void feedFailed()
+{
+
+    feedsFailed.increment();
+
+}//end of PipelineMetrics::feedFailed
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PipelineMetrics::ratio
+//
+// Returns the fraction of pHits out of pHits plus pMisses, or 0 if both are
+// 0.
+//
+
+private static double ratio(long pHits, long pMisses)
+{
+
+    long total = pHits + pMisses;
+
+    return(total == 0 ? 0 : (double)pHits / total);
+
+}//end of PipelineMetrics::ratio
+//-----------------------------------------------------------------------------
+
+}//end of class PipelineMetrics
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
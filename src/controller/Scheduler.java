@@ -0,0 +1,172 @@
+/******************************************************************************
+* Title: Scheduler.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class runs the Controller's background work on a single control
+* thread. Jobs submitted to it are placed in an event queue and run as soon as
+* the thread is free; periodic tasks each run at their own rate. When there is
+* nothing queued and no periodic task is due, the thread sleeps until there
+* is -- it does not wake up on a fixed tick.
+*
+* Since all jobs run on the same thread they never run concurrently with
+* each other, so they need no synchronization among themselves.
+*
+* A job which fails is reported to the SchedulerListener, so the failure
+* reaches the log, and the thread goes on with the other jobs.
+*
+* NOTE:  All jobs run by this class must wrap calls to alter GUI components
+* in the invokeLater function to be thread safe.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package controller;
+
+import java.util.concurrent.*;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class Scheduler
+//
+
+public class Scheduler extends Object{
+
+    ScheduledExecutorService executor;
+
+    SchedulerListener listener;
+
+//-----------------------------------------------------------------------------
+// Scheduler::Scheduler (constructor)
+//
+// pListener is told of any job which fails.
+//
+
+public Scheduler(SchedulerListener pListener)
+{
+
+    listener = pListener;
+
+}//end of Scheduler::Scheduler (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Scheduler::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+// Starts the control thread. It is a daemon thread so it will not keep the
+// program running after the main window is closed.
+//
+
+public void init()
+{
+
+    executor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable pRunnable) {
+                Thread thread = new Thread(pRunnable, "Control");
+                thread.setDaemon(true);
+                return(thread);
+            }});
+
+}//end of Scheduler::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Scheduler::submit
+//
+// Queues pJob to be run on the control thread as soon as possible.
+//
+
+public void submit(Runnable pJob)
+{
+
+    executor.execute(guard(pJob));
+
+}//end of Scheduler::submit
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Scheduler::schedule
+//
+// Runs pJob once on the control thread pDelay milliseconds from now. The
+// returned future can be used to cancel the job.
+//
+
+public ScheduledFuture<?> schedule(Runnable pJob, long pDelay)
+{
+
+    return(executor.schedule(guard(pJob), pDelay, TimeUnit.MILLISECONDS));
+
+}//end of Scheduler::schedule
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Scheduler::schedulePeriodic
+//
+// Runs pTask on the control thread every pPeriod milliseconds, starting one
+// period from now. The returned future can be used to cancel the task.
+//
+
+public ScheduledFuture<?> schedulePeriodic(Runnable pTask, long pPeriod)
+{
+
+    return(executor.scheduleAtFixedRate(
+                    guard(pTask), pPeriod, pPeriod, TimeUnit.MILLISECONDS));
+
+}//end of Scheduler::schedulePeriodic
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Scheduler::shutDown
+//
+// Stops the control thread after any queued jobs have been run. Periodic
+// tasks are cancelled.
+//
+
+public void shutDown()
+{
+
+    executor.shutdown();
+
+}//end of Scheduler::shutDown
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Scheduler::guard
+//
+// Returns a Runnable which runs pJob and reports anything it throws to the
+// listener. Without this, a failure would silently cancel a periodic task,
+// and an Error would stop the control thread.
+//
+
+private Runnable guard(final Runnable pJob)
+{
+
+    return(new Runnable() {
+        @Override
+        public void run() {
+            try{
+                pJob.run();
+            }
+            catch(Throwable e){
+                listener.jobFailed(e);
+            }
+        }});
+
+}//end of Scheduler::guard
+//-----------------------------------------------------------------------------
+
+}//end of class Scheduler
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
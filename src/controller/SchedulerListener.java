@@ -0,0 +1,41 @@
+/******************************************************************************
+* Title: SchedulerListener.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This interface is implemented by classes which need to be notified when a
+* job run on a Scheduler's control thread fails.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package controller;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// interface SchedulerListener
+//
+
+public interface SchedulerListener {
+
+//-----------------------------------------------------------------------------
+// SchedulerListener::jobFailed
+//
+// Called on the control thread when a job run on it throws pError. The
+// thread goes on running the other jobs and, for a periodic task, its later
+// runs.
+//
+
+public void jobFailed(Throwable pError);
+
+}//end of interface SchedulerListener
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,117 @@
+/******************************************************************************
+* Title: StartupTimer.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class reports how long the program has been running since the
+* process was launched, including the time taken to start the JVM, so the
+* startup time can be shown and compared between launches with and without
+* the class data sharing archive made by the cds target in build.xml.
+*
+* If the launcher script passes the time it was started, in milliseconds
+* since the epoch, in the webcontenthandler.launchTime system property, the
+* time is measured from then. Otherwise it is measured from the moment the
+* JVM began creating itself, as recorded by the JVM to the millisecond; this
+* leaves out only the time taken to start the java process.
+*
+* The process start time kept by the operating system is not used: on Linux
+* it is derived from clock ticks since boot and can be off by hundreds of
+* milliseconds, more than the startup time being measured.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package controller;
+
+import java.lang.management.ManagementFactory;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class StartupTimer
+//
+
+public class StartupTimer extends Object{
+
+    public static final String LAUNCH_TIME_PROPERTY =
+                                                "webcontenthandler.launchTime";
+
+    //if this system property is true, the GUI exits as soon as it is ready --
+    //used by the training run which makes the class data sharing archive
+    public static final String EXIT_WHEN_READY_PROPERTY =
+                                            "webcontenthandler.exitWhenReady";
+
+//-----------------------------------------------------------------------------
+// StartupTimer::getTimeSinceLaunch
+//
+// Returns the number of milliseconds since the program was launched.
+//
+
+public static long getTimeSinceLaunch()
+{
+
+    long launched = getLauncherTime();
+
+    if (launched < 0){
+        launched = ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    return(System.currentTimeMillis() - launched);
+
+}//end of StartupTimer::getTimeSinceLaunch
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// StartupTimer::getLauncherTime
+//
+// Returns the time passed by the launcher script in milliseconds since the
+// epoch or -1 if none was passed.
+//
+
+private static long getLauncherTime()
+{
+
+    String time = System.getProperty(LAUNCH_TIME_PROPERTY);
+
+    if (time == null) {return(-1);}
+
+    try{
+        return(Long.parseLong(time.trim()));
+    }
+    catch(NumberFormatException e){
+        return(-1);
+    }
+
+}//end of StartupTimer::getLauncherTime
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// StartupTimer::describe
+//
+// Returns a description of the time since launch for display, such as
+// "412 ms after launch", with pEvent before it. If the launcher did not pass
+// its start time, the time is described as after JVM start.
+//
+
+public static String describe(String pEvent)
+{
+
+    long time = getTimeSinceLaunch();
+
+    String from = getLauncherTime() < 0 ? "JVM start" : "launch";
+
+    return(pEvent + " " + time + " ms after " + from);
+
+}//end of StartupTimer::describe
+//-----------------------------------------------------------------------------
+
+}//end of class StartupTimer
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,257 @@
+/******************************************************************************
+* Title: CompiledTemplate.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class holds a page or fragment which has been scanned for include
+* markers. The raw bytes of the file are kept along with the positions of the
+* literal spans between the markers and the fragment name for each marker, so
+* the file only has to be read and scanned once no matter how many times it
+* is inserted.
+*
+* The template is laid out as alternating literals and slots:
+*
+*   literal 0, slot 0, literal 1, slot 1, ... slot n-1, literal n
+*
+* Markers are ASCII so they are matched directly on the UTF-8 bytes; a marker
+* byte sequence can never match the middle of a multi-byte character.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.io.*;
+import java.util.ArrayList;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class CompiledTemplate
+//
+
+public class CompiledTemplate extends Object{
+
+    static final byte[] INCLUDE_START = ascii("<!--#include");
+    static final byte[] INCLUDE_END = ascii("-->");
+    static final byte[] FILE_ATTRIBUTE = ascii("file=\"");
+
+    String path;
+    long lastModified;
+
+    byte[] bytes;
+
+    int[] literalStarts;
+    int[] literalEnds;
+    String[] slots;
+
+//-----------------------------------------------------------------------------
+// CompiledTemplate::CompiledTemplate (constructor)
+//
+
+public CompiledTemplate(String pPath, long pLastModified)
+{
+
+    path = pPath; lastModified = pLastModified;
+
+}//end of CompiledTemplate::CompiledTemplate (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// CompiledTemplate::compile
+//
+// Splits pBytes into literal spans and insertion slots. A marker without a
+// valid file attribute is left in the literal text untouched.
+//
+
+public void compile(byte[] pBytes)
+{
+
+    bytes = pBytes;
+
+    ArrayList<Integer> starts = new ArrayList<Integer>();
+    ArrayList<Integer> ends = new ArrayList<Integer>();
+    ArrayList<String> names = new ArrayList<String>();
+
+    int literalStart = 0;
+    int position = 0;
+
+    while (true){
+
+        int start = indexOf(bytes, INCLUDE_START, position, bytes.length);
+        if (start == -1) {break;}
+
+        int end = indexOf(bytes, INCLUDE_END,
+                                start + INCLUDE_START.length, bytes.length);
+        if (end == -1) {break;}
+
+        position = end + INCLUDE_END.length;
+
+        String name = parseFileAttribute(bytes, start, end);
+
+        //not a valid marker, so leave it in the literal
+        if (name == null) {continue;}
+
+        starts.add(literalStart); ends.add(start); names.add(name);
+
+        literalStart = position;
+
+    }
+
+    starts.add(literalStart); ends.add(bytes.length);
+
+    literalStarts = new int[starts.size()];
+    literalEnds = new int[ends.size()];
+
+    for (int i = 0; i < literalStarts.length; i++){
+        literalStarts[i] = starts.get(i); literalEnds[i] = ends.get(i);
+    }
+
+    slots = names.toArray(new String[names.size()]);
+
+}//end of CompiledTemplate::compile
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// CompiledTemplate::getSlotCount
+//
+// Returns the number of insertion slots. There is always one more literal
+// than there are slots.
+//
+
+public int getSlotCount()
+{
+
+    return(slots.length);
+
+}//end of CompiledTemplate::getSlotCount
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// CompiledTemplate::getSlot
+//
+// Returns the fragment name for slot pIndex.
+//
+
+public String getSlot(int pIndex)
+{
+
+    return(slots[pIndex]);
+
+}//end of CompiledTemplate::getSlot
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// CompiledTemplate::writeLiteral
+//
+// Writes literal span pIndex to pOut.
+//
+
+public void writeLiteral(int pIndex, OutputStream pOut) throws IOException
+{
+
+    pOut.write(bytes, literalStarts[pIndex],
+                                   literalEnds[pIndex] - literalStarts[pIndex]);
+
+}//end of CompiledTemplate::writeLiteral
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// CompiledTemplate::getSize
+//
+// Returns the size in bytes of the template.
+//
+
+public int getSize()
+{
+
+    return(bytes.length);
+
+}//end of CompiledTemplate::getSize
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// CompiledTemplate::parseFileAttribute
+//
+// Returns the value of the file="..." attribute in the marker which lies
+// between pStart and pEnd in pBytes or null if the attribute is not present.
+//
+
+static String parseFileAttribute(byte[] pBytes, int pStart, int pEnd)
+{
+
+    int start = indexOf(pBytes, FILE_ATTRIBUTE, pStart, pEnd);
+    if (start == -1) {return(null);}
+    start += FILE_ATTRIBUTE.length;
+
+    int end = start;
+    while (end < pEnd && pBytes[end] != '"') {end++;}
+    if (end == pEnd || end == start) {return(null);}
+
+    try{
+        return(new String(pBytes, start, end - start, "UTF-8"));
+    }
+    catch(UnsupportedEncodingException e){
+        return(null);
+    }
+
+}//end of CompiledTemplate::parseFileAttribute
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// CompiledTemplate::indexOf
+//
+// Returns the index of the first occurrence of pPattern in pBytes between
+// pFrom and pTo or -1 if not found.
+//
+
+static int indexOf(byte[] pBytes, byte[] pPattern, int pFrom, int pTo)
+{
+
+    byte first = pPattern[0];
+    int last = pTo - pPattern.length;
+
+    for (int i = pFrom; i <= last; i++){
+
+        if (pBytes[i] != first) {continue;}
+
+        int j = 1;
+        while (j < pPattern.length && pBytes[i + j] == pPattern[j]) {j++;}
+
+        if (j == pPattern.length) {return(i);}
+
+    }
+
+    return(-1);
+
+}//end of CompiledTemplate::indexOf
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// CompiledTemplate::ascii
+//
+// Returns the bytes of pText which must contain only ASCII characters.
+//
+
+static byte[] ascii(String pText)
+{
+
+    byte[] result = new byte[pText.length()];
+
+    for (int i = 0; i < result.length; i++) {result[i] = (byte)pText.charAt(i);}
+
+    return(result);
+
+}//end of CompiledTemplate::ascii
+//-----------------------------------------------------------------------------
+
+}//end of class CompiledTemplate
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
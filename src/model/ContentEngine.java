@@ -0,0 +1,1301 @@
+/******************************************************************************
+* Title: ContentEngine.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class inserts content into HTML pages. Each page in the source folder
+* is scanned for include markers of the form:
+*
+*   <!--#include file="header.html" -->
+*
+* and each marker is replaced with the contents of the named file from the
+* fragment folder. Fragments may themselves contain include markers. The
+* processed page is written to the same relative path in the output folder.
+*
+* Pages and fragments are read through a TemplateCache so that each file is
+* read from disk and scanned for markers only once per modification. The
+* fully expanded bytes of each fragment are kept in a FragmentCache so that
+* a fragment used by many pages is only expanded once.
+*
+* If minification is enabled, each page is written through an HtmlMinifier
+* as content is inserted, so whitespace and comments are removed in the same
+* pass. Fragments are cached as written and minified along with each page,
+* since the right treatment of a fragment's whitespace depends on where it
+* is included -- inside a pre element, for instance.
+*
+* If output compression is enabled, each processed page is also written in
+* compressed form beside the page -- page.html.gz and so on -- so a web server
+* can send it without compressing it on every request. Since each page is
+* processed by whichever worker thread is handling it, pages are compressed
+* in parallel. A hash of each page's contents is kept between runs; when a
+* rebuilt page comes out the same as before, neither it nor its compressed
+* copies are written again, so their modification times are left alone and
+* tools which sync the output folder see no change.
+*
+* If a PageStore is set, each processed page is also added to it so the
+* PageServer can serve it from memory.
+*
+* Pages at least as large as the Large Page Threshold are not read into
+* memory. Each is scanned and copied through a MappedTemplate and written
+* straight to a temporary file in the output folder while its hash is
+* computed, then moved into place if it has changed. Such pages are not
+* cached or added to the PageStore. When rendering on demand, such a page is
+* likewise expanded a window at a time to a stream rather than into memory.
+*
+* While processing, the pages and fragments included by each page are
+* recorded in a DependencyGraph which is saved between runs. When only some
+* files have changed, the graph is used to rebuild only the pages which are
+* affected by those changes. When the folders are being watched, the files
+* reported as changed are mapped through the graph directly instead of
+* scanning the source folder.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class ContentEngine
+//
+
+public class ContentEngine extends Object{
+
+    Options options;
+
+    DependencyGraph dependencyGraph;
+
+    TemplateCache templateCache;
+
+    FragmentCache fragmentCache;
+
+    OutputHashes outputHashes;
+
+    //formats in which compressed copies of pages are written -- empty if
+    //compression is disabled
+    ArrayList<String> compressionFormats;
+
+    //processed pages are added here if it is not null
+    volatile PageStore pageStore;
+
+    //total size of the pages written to the output folder
+    AtomicLong bytesWritten = new AtomicLong(0);
+
+    //number of processed pages not written because the output folder
+    //already held the same contents
+    AtomicLong pagesNotWritten = new AtomicLong(0);
+
+//-----------------------------------------------------------------------------
+// ContentEngine::ContentEngine (constructor)
+//
+
+public ContentEngine(Options pOptions)
+{
+
+    options = pOptions;
+
+}//end of ContentEngine::ContentEngine (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+// Loads the dependency graph and output hashes saved by the previous run, if
+// any.
+//
+
+public void init() throws IOException
+{
+
+    templateCache = new TemplateCache(
+                    options.templateCacheSize, options.templateCacheBudget);
+    templateCache.init();
+
+    fragmentCache = new FragmentCache(options.fragmentCacheBudget,
+           options.fragmentCacheOffHeap, options.fragmentCacheOffHeapThreshold);
+    fragmentCache.init();
+
+    compressionFormats = options.compressOutput ?
+                OutputCompressor.parseFormats(options.compressionFormats) :
+                new ArrayList<String>();
+
+    outputHashes = new OutputHashes();
+    outputHashes.init();
+
+    dependencyGraph = new DependencyGraph();
+    dependencyGraph.init();
+    dependencyGraph.load(options.dependencyFilename);
+
+    outputHashes.load(options.outputHashFilename);
+
+}//end of ContentEngine::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::getTemplateCache
+//
+
+public TemplateCache getTemplateCache()
+{
+
+    return(templateCache);
+
+}//end of ContentEngine::getTemplateCache
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::getFragmentCache
+//
+
+public FragmentCache getFragmentCache()
+{
+
+    return(fragmentCache);
+
+}//end of ContentEngine::getFragmentCache
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::getBytesWritten
+//
+// Returns the total size of the pages written to the output folder, not
+// counting compressed copies.
+//
+
+public long getBytesWritten()
+{
+
+    return(bytesWritten.get());
+
+}//end of ContentEngine::getBytesWritten
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::getPagesNotWritten
+//
+// Returns the number of processed pages which were not written because the
+// output folder already held the same contents.
+//
+
+public long getPagesNotWritten()
+{
+
+    return(pagesNotWritten.get());
+
+}//end of ContentEngine::getPagesNotWritten
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::setPageStore
+//
+// Sets the store to which each processed page is added, or null for none.
+//
+
+public void setPageStore(PageStore pPageStore)
+{
+
+    pageStore = pPageStore;
+
+}//end of ContentEngine::setPageStore
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::rebuildAll
+//
+// Processes every page in the source folder regardless of whether it or any
+// of its fragments have changed. The dependency graph is rebuilt from scratch
+// and saved.
+//
+
+public RebuildSummary rebuildAll()
+{
+
+    RebuildSummary summary = new RebuildSummary();
+
+    for (File page : startRebuild(true, summary)) {processPage(page, summary);}
+
+    finishRebuild(summary);
+
+    return(summary);
+
+}//end of ContentEngine::rebuildAll
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::rebuildChanged
+//
+// Processes only the pages which are new or have changed since the last run
+// plus the pages which include, directly or through nested includes, any
+// fragment which has changed since the last run.
+//
+
+public RebuildSummary rebuildChanged()
+{
+
+    RebuildSummary summary = new RebuildSummary();
+
+    for (File page : startRebuild(false, summary)) {processPage(page, summary);}
+
+    finishRebuild(summary);
+
+    return(summary);
+
+}//end of ContentEngine::rebuildChanged
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::startRebuild
+//
+// Prepares for a rebuild and returns the pages which need to be processed.
+// The caller may then pass each page to processPage, from any number of
+// threads, and must call finishRebuild when all are done.
+//
+// If pRebuildAll is true, every page is returned and the dependency graph is
+// cleared so it will be rebuilt from scratch.
+//
+// Otherwise only the pages which are new or have changed since the last run
+// are returned, plus the pages which include, directly or through nested
+// includes, any fragment which has changed since the last run. Pages which
+// have been deleted from the source folder are dropped from the graph.
+//
+
+public ArrayList<File> startRebuild(boolean pRebuildAll,
+                                                     RebuildSummary pSummary)
+{
+
+    ArrayList<File> sourcePages = new ArrayList<File>();
+    findPages(new File(options.sourceFolder), sourcePages);
+
+    if (pRebuildAll){
+        dependencyGraph.init();
+        return(sourcePages);
+    }
+
+    HashSet<String> dirty = new HashSet<String>();
+    HashSet<String> existing = new HashSet<String>();
+
+    for (File page : sourcePages){
+        String path = page.getPath();
+        existing.add(path);
+        if (dependencyGraph.isChanged(path, page.lastModified())){
+            dirty.add(path);
+        }
+    }
+
+    //drop pages which no longer exist
+
+    for (String page : dependencyGraph.getPages()){
+        if (existing.contains(page)) {continue;}
+        dependencyGraph.removeNode(page);
+        outputHashes.remove(getOutputFile(new File(page)).getPath());
+    }
+
+    dirty.addAll(dependencyGraph.getDependentPages(findChangedFragments()));
+
+    pSummary.pagesUnchanged = existing.size() - dirty.size();
+
+    ArrayList<File> result = new ArrayList<File>(dirty.size());
+    for (String page : dirty) {result.add(new File(page));}
+
+    return(result);
+
+}//end of ContentEngine::startRebuild
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::startRebuild
+//
+// Prepares for a rebuild of only the pages affected by pChanged, a list of
+// files and folders known to have been created, modified, or deleted, and
+// returns those pages. Used when the folders are being watched so that the
+// source folder need not be scanned. The rebuild proceeds as for the other
+// version.
+//
+// Each changed page which is new or has a different modification time than
+// was recorded is returned, plus the pages which include, directly or
+// through nested includes, any changed fragment. Pages which have been
+// deleted, or are in a deleted folder, are dropped from the graph. A changed
+// folder which still exists, such as one moved into place, is scanned and
+// treated as if each page in it had been reported. Files which are neither
+// pages nor fragments used by any page are ignored.
+//
+
+public ArrayList<File> startRebuild(Collection<File> pChanged,
+                                                     RebuildSummary pSummary)
+{
+
+    String source = new File(options.sourceFolder).getPath() + File.separator;
+
+    HashSet<String> dirty = new HashSet<String>();
+    ArrayList<String> fragments = new ArrayList<String>();
+
+    for (File file : pChanged){
+
+        String path = file.getPath();
+        long modified = file.lastModified();
+
+        if (!path.startsWith(source)){
+            if (dependencyGraph.isChanged(path, modified)){
+                fragments.add(path);
+            }
+            //the fragments in a deleted folder are not reported separately
+            if (!file.exists()) {addContained(path, fragments);}
+            continue;
+        }
+
+        if (file.isFile()){
+            if (isPage(path) && dependencyGraph.isChanged(path, modified)){
+                dirty.add(path);
+            }
+            continue;
+        }
+
+        HashSet<String> existing = new HashSet<String>();
+
+        if (file.isDirectory()){
+            ArrayList<File> pages = new ArrayList<File>();
+            findPages(file, pages);
+            for (File page : pages){
+                existing.add(page.getPath());
+                if (dependencyGraph.isChanged(
+                                    page.getPath(), page.lastModified())){
+                    dirty.add(page.getPath());
+                }
+            }
+        }
+
+        //a deleted page, or pages no longer in a folder which was deleted
+        //or changed
+
+        for (String page : dependencyGraph.getPages()){
+            if (!page.equals(path) && !page.startsWith(path + File.separator)){
+                continue;
+            }
+            if (existing.contains(page)) {continue;}
+            dependencyGraph.removeNode(page);
+            outputHashes.remove(getOutputFile(new File(page)).getPath());
+        }
+
+    }
+
+    dirty.addAll(dependencyGraph.getDependentPages(fragments));
+
+    int known = dependencyGraph.getPages().size();
+
+    pSummary.pagesUnchanged = Math.max(0, known - dirty.size());
+
+    ArrayList<File> result = new ArrayList<File>(dirty.size());
+    for (String page : dirty) {result.add(new File(page));}
+
+    return(result);
+
+}//end of ContentEngine::startRebuild
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::addContained
+//
+// Adds to pFragments each fragment in the dependency graph which is in the
+// folder pFolder or any folder below it.
+//
+
+private void addContained(String pFolder, ArrayList<String> pFragments)
+{
+
+    String prefix = pFolder + File.separator;
+
+    for (String fragment : dependencyGraph.getFragments()){
+        if (fragment.startsWith(prefix)) {pFragments.add(fragment);}
+    }
+
+}//end of ContentEngine::addContained
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::finishRebuild
+//
+// Completes a rebuild begun with startRebuild by saving the dependency graph
+// and output hashes.
+//
+
+public void finishRebuild(RebuildSummary pSummary)
+{
+
+    saveDependencyGraph(pSummary);
+
+}//end of ContentEngine::finishRebuild
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::rebuildDependents
+//
+// Processes only the pages which include pFragment directly or through
+// nested includes. pFragment is the path of the fragment file.
+//
+
+public RebuildSummary rebuildDependents(String pFragment)
+{
+
+    RebuildSummary summary = new RebuildSummary();
+
+    for (String page : dependencyGraph.getDependentPages(pFragment)){
+        processPage(new File(page), summary);
+    }
+
+    saveDependencyGraph(summary);
+
+    return(summary);
+
+}//end of ContentEngine::rebuildDependents
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::findChangedFragments
+//
+// Returns the fragments in the dependency graph whose files have been
+// modified, created, or deleted since they were last processed.
+//
+
+private ArrayList<String> findChangedFragments()
+{
+
+    ArrayList<String> changed = new ArrayList<String>();
+
+    for (String fragment : dependencyGraph.getFragments()){
+        //lastModified returns 0 for missing files which is what is recorded
+        //for fragments which were missing when last processed
+        long modified = new File(fragment).lastModified();
+        if (dependencyGraph.isChanged(fragment, modified)){
+            changed.add(fragment);
+        }
+    }
+
+    return(changed);
+
+}//end of ContentEngine::findChangedFragments
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::processPage
+//
+// Inserts all content into pPage and writes the result to the output folder.
+// Errors are recorded in pSummary rather than thrown so that one bad page
+// does not stop a rebuild.
+//
+// May be called from several threads at once for different pages.
+//
+
+public void processPage(File pPage, RebuildSummary pSummary)
+{
+
+    PipelineEvents.PageProcessed event = null;
+
+    if (PipelineEvents.enabled){
+        event = new PipelineEvents.PageProcessed();
+        event.begin();
+    }
+
+    try{
+
+        long size = isLargePage(pPage) ?
+                                    processLargePage(pPage, pSummary) :
+                                    processPageInMemory(pPage, pSummary);
+
+        pSummary.addPageRendered();
+
+        if (event != null){
+            event.page = pPage.getPath(); event.size = size;
+            event.commit();
+        }
+
+    }
+    catch(IOException e){
+        pSummary.addError(
+                         "Error processing " + pPage + ": " + e.getMessage());
+    }
+
+}//end of ContentEngine::processPage
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::processPageInMemory
+//
+// Inserts all content into pPage in memory and writes the result to the
+// output folder unless it is already there. Returns the size of the result.
+//
+
+private long processPageInMemory(File pPage, RebuildSummary pSummary)
+                                                            throws IOException
+{
+
+    ExpansionParameters params = new ExpansionParameters();
+
+    ByteArrayOutputStream out = expandPage(pPage, params, pSummary);
+
+    File outputFile = getOutputFile(pPage);
+
+    byte[] bytes = out.toByteArray();
+    String hash = PageStore.hash(bytes);
+
+    boolean unchanged = isUnchanged(outputFile, bytes, hash);
+
+    if (unchanged){
+        pagesNotWritten.incrementAndGet();
+        pSummary.addPageNotWritten();
+    }
+    else{
+        writeFile(outputFile, bytes);
+        bytesWritten.addAndGet(bytes.length);
+    }
+
+    byte[] gzip =
+            writeCompressedCopies(outputFile, bytes, unchanged, pSummary);
+
+    outputHashes.put(outputFile.getPath(), hash);
+
+    PageStore store = pageStore;
+    if (store != null){
+        store.put(outputFile, bytes, gzip, params.dependencies);
+    }
+
+    return(bytes.length);
+
+}//end of ContentEngine::processPageInMemory
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::isLargePage
+//
+// Returns true if pPage is too large to be processed in memory.
+//
+
+boolean isLargePage(File pPage)
+{
+
+    return(options.largePageThreshold > 0
+                            && pPage.length() >= options.largePageThreshold);
+
+}//end of ContentEngine::isLargePage
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::processLargePage
+//
+// Inserts all content into pPage without reading it into memory. The page
+// is mapped a window at a time and the result is written to a temporary
+// file beside the output file while it is hashed. If the output folder
+// already holds the same contents, the temporary file is discarded;
+// otherwise it replaces the output file. Returns the size of the result.
+//
+// The page is not cached, and any copy in the PageStore is discarded so the
+// PageServer will load the new one from the output folder.
+//
+
+private long processLargePage(File pPage, RebuildSummary pSummary)
+                                                            throws IOException
+{
+
+    File outputFile = getOutputFile(pPage);
+    File temp = new File(outputFile.getPath() + ".tmp");
+
+    File parent = outputFile.getParentFile();
+    if (parent != null) {parent.mkdirs();}
+
+    MappedTemplate template =
+                    new MappedTemplate(pPage.getPath(), pPage.lastModified());
+
+    MessageDigest digest = PageStore.createDigest();
+
+    OutputStream out = null;
+
+    try{
+
+        template.compile();
+
+        out = new DigestOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temp), MappedTemplate.COPY_SIZE), digest);
+
+        HtmlMinifier minifier =
+                            options.minifyOutput ? new HtmlMinifier(out) : null;
+
+        ArrayList<String> direct = insertContent(template,
+                minifier != null ? minifier : out, new ArrayList<String>(),
+                                        new ExpansionParameters(), pSummary);
+
+        if (minifier != null) {minifier.finish();}
+
+        out.close(); out = null;
+
+        dependencyGraph.setIncludes(
+                          pPage.getPath(), true, direct, template.lastModified);
+
+        String hash = PageStore.toHash(digest.digest());
+        long size = temp.length();
+
+        String recorded = outputHashes.get(outputFile.getPath());
+
+        boolean unchanged = outputFile.isFile() && outputFile.length() == size
+                && (recorded != null ? hash.equals(recorded) :
+                   Files.mismatch(temp.toPath(), outputFile.toPath()) == -1);
+
+        if (unchanged){
+            pagesNotWritten.incrementAndGet();
+            pSummary.addPageNotWritten();
+        }
+        else{
+            moveIntoPlace(temp, outputFile);
+            bytesWritten.addAndGet(size);
+        }
+
+        writeCompressedCopies(outputFile, unchanged, pSummary);
+
+        outputHashes.put(outputFile.getPath(), hash);
+
+        PageStore store = pageStore;
+        if (store != null) {store.remove(outputFile);}
+
+        return(size);
+
+    }
+    finally{
+        if (out != null) {out.close();}
+        template.close();
+        //nothing to delete if it was moved into place
+        temp.delete();
+    }
+
+}//end of ContentEngine::processLargePage
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::isUnchanged
+//
+// Returns true if pOutputFile already holds pBytes, whose hash is pHash. If
+// a hash was recorded for the file when it was last written, it is compared
+// with pHash; otherwise, as on the first run with an existing output folder,
+// the file itself is compared with pBytes. A file of a different size is
+// never the same.
+//
+
+private boolean isUnchanged(File pOutputFile, byte[] pBytes, String pHash)
+                                                            throws IOException
+{
+
+    if (!pOutputFile.isFile() || pOutputFile.length() != pBytes.length){
+        return(false);
+    }
+
+    String recorded = outputHashes.get(pOutputFile.getPath());
+
+    if (recorded != null) {return(recorded.equals(pHash));}
+
+    return(contentEquals(pOutputFile, pBytes));
+
+}//end of ContentEngine::isUnchanged
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::contentEquals
+//
+// Returns true if the contents of pFile are the same as pBytes. The file is
+// read in chunks and the comparison stops at the first difference.
+//
+
+static boolean contentEquals(File pFile, byte[] pBytes) throws IOException
+{
+
+    FileInputStream in = null;
+
+    try{
+
+        in = new FileInputStream(pFile);
+
+        byte[] chunk = new byte[8192];
+        int position = 0, count;
+
+        while ((count = in.read(chunk)) != -1){
+            if (position + count > pBytes.length) {return(false);}
+            if (!Arrays.equals(chunk, 0, count,
+                                pBytes, position, position + count)){
+                return(false);
+            }
+            position += count;
+        }
+
+        return(position == pBytes.length);
+
+    }
+    finally{
+        if (in != null) {in.close();}
+    }
+
+}//end of ContentEngine::contentEquals
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::writeCompressedCopies
+//
+// Writes pBytes, the contents of pOutputFile, in each compression format
+// beside pOutputFile. If pUnchanged is true, the output file was found to
+// already hold pBytes and existing copies are left as they are. Copies in
+// formats no longer enabled are deleted.
+//
+// Returns the gzip copy if one was made, otherwise null.
+//
+
+private byte[] writeCompressedCopies(File pOutputFile, byte[] pBytes,
+                boolean pUnchanged, RebuildSummary pSummary) throws IOException
+{
+
+    byte[] gzip = null;
+
+    for (String format : compressionFormats){
+
+        File copy = new File(pOutputFile.getPath()
+                                    + OutputCompressor.getExtension(format));
+
+        if (pUnchanged && copy.isFile()){
+            pSummary.addVariantUnchanged();
+            continue;
+        }
+
+        byte[] compressed = OutputCompressor.compress(pBytes, format);
+        if (OutputCompressor.GZIP.equals(format)) {gzip = compressed;}
+
+        writeFile(copy, compressed);
+
+        pSummary.addVariantWritten();
+
+    }
+
+    deleteDisabledCopies(pOutputFile);
+
+    return(gzip);
+
+}//end of ContentEngine::writeCompressedCopies
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::writeCompressedCopies
+//
+// Writes pOutputFile in each compression format beside it, compressing it
+// as it is read. If pUnchanged is true, the output file was found to
+// already hold the new contents and existing copies are left as they are.
+// Copies in formats no longer enabled are deleted.
+//
+// Each copy is compressed to a temporary file which then replaces it, so a
+// server never sees a partly written copy.
+//
+
+private void writeCompressedCopies(File pOutputFile, boolean pUnchanged,
+                                RebuildSummary pSummary) throws IOException
+{
+
+    for (String format : compressionFormats){
+
+        File copy = new File(pOutputFile.getPath()
+                                    + OutputCompressor.getExtension(format));
+
+        if (pUnchanged && copy.isFile()){
+            pSummary.addVariantUnchanged();
+            continue;
+        }
+
+        File temp = new File(copy.getPath() + ".tmp");
+
+        try{
+            OutputCompressor.compress(pOutputFile, temp, format);
+            moveIntoPlace(temp, copy);
+        }
+        finally{
+            //nothing to delete if it was moved into place
+            temp.delete();
+        }
+
+        pSummary.addVariantWritten();
+
+    }
+
+    deleteDisabledCopies(pOutputFile);
+
+}//end of ContentEngine::writeCompressedCopies
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::deleteDisabledCopies
+//
+// Deletes the copies of pOutputFile in any compression format which is not
+// enabled, left from before Compress Output was turned off or the format
+// was removed from the list.
+//
+
+private void deleteDisabledCopies(File pOutputFile) throws IOException
+{
+
+    for (String format : OutputCompressor.FORMATS){
+
+        if (compressionFormats.contains(format)) {continue;}
+
+        File copy = new File(pOutputFile.getPath()
+                                    + OutputCompressor.getExtension(format));
+
+        Files.deleteIfExists(copy.toPath());
+
+    }
+
+}//end of ContentEngine::deleteDisabledCopies
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::renderPage
+//
+// Inserts all content into pPage and returns the result without writing it
+// to the output folder. Every file used, including pPage itself, is added to
+// pParams.dependencies so the caller can tell when the result is out of
+// date. Missing fragments are marked in the result with a comment.
+//
+// Since nothing is written, the includes are not recorded in the dependency
+// graph -- if they were, a later rebuild would take the page's output file
+// to be current.
+//
+// May be called from several threads at once for different pages.
+//
+
+byte[] renderPage(File pPage, ExpansionParameters pParams) throws IOException
+{
+
+    pParams.recordIncludes = false;
+
+    return(expandPage(pPage, pParams, new RebuildSummary()).toByteArray());
+
+}//end of ContentEngine::renderPage
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::renderLargePage
+//
+// Inserts all content into pPage, which is too large to be held in memory,
+// and writes the result to pOut without writing it to the output folder.
+// The page is mapped a window at a time as in processLargePage. Otherwise
+// it is the same as renderPage.
+//
+
+void renderLargePage(File pPage, OutputStream pOut,
+                            ExpansionParameters pParams) throws IOException
+{
+
+    pParams.recordIncludes = false;
+
+    MappedTemplate template =
+                    new MappedTemplate(pPage.getPath(), pPage.lastModified());
+
+    try{
+
+        template.compile();
+
+        HtmlMinifier minifier =
+                        options.minifyOutput ? new HtmlMinifier(pOut) : null;
+
+        ArrayList<String> direct = insertContent(template,
+                minifier != null ? minifier : pOut, new ArrayList<String>(),
+                                                pParams, new RebuildSummary());
+
+        if (minifier != null) {minifier.finish();}
+
+        pParams.dependencies.add(new FragmentCache.Dependency(
+                            pPage.getPath(), template.lastModified, direct));
+
+    }
+    finally{
+        template.close();
+    }
+
+}//end of ContentEngine::renderLargePage
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::expandPage
+//
+// Returns pPage with all content inserted, minified if enabled. Records the
+// page's includes in the dependency graph unless pParams says not to and
+// adds every file used, including pPage itself, to pParams.dependencies.
+//
+
+private ByteArrayOutputStream expandPage(File pPage,
+                ExpansionParameters pParams, RebuildSummary pSummary)
+                                                            throws IOException
+{
+
+    CompiledTemplate template = templateCache.getTemplate(pPage);
+
+    ByteArrayOutputStream out =
+                              new ByteArrayOutputStream(template.getSize() * 2);
+    ArrayList<String> includeStack = new ArrayList<String>();
+
+    HtmlMinifier minifier = options.minifyOutput ? new HtmlMinifier(out) : null;
+
+    ArrayList<String> direct = insertContent(template,
+                minifier != null ? minifier : out, includeStack, pParams,
+                                                                    pSummary);
+
+    if (minifier != null) {minifier.finish();}
+
+    recordIncludes(pParams, pPage.getPath(), true, direct,
+                                                        template.lastModified);
+
+    pParams.dependencies.add(new FragmentCache.Dependency(
+                            pPage.getPath(), template.lastModified, direct));
+
+    return(out);
+
+}//end of ContentEngine::expandPage
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::insertContent
+//
+// Copies pTemplate to pOut, replacing each insertion slot with the contents
+// of the named fragment. pIncludeStack holds the fragments currently being
+// expanded so that an include cycle is skipped rather than recursing
+// forever.
+//
+// Every fragment used is added to pParams.dependencies. Returns the list of
+// fragments directly included by pTemplate.
+//
+
+private ArrayList<String> insertContent(CompiledTemplate pTemplate,
+                OutputStream pOut, ArrayList<String> pIncludeStack,
+                ExpansionParameters pParams, RebuildSummary pSummary)
+                                                            throws IOException
+{
+
+    ArrayList<String> direct = new ArrayList<String>();
+
+    int count = pTemplate.getSlotCount();
+
+    for (int i = 0; i < count; i++){
+
+        //copy the text preceding the marker
+        pTemplate.writeLiteral(i, pOut);
+
+        String name = pTemplate.getSlot(i);
+
+        File fragment = new File(options.fragmentFolder, name);
+        String path = fragment.getPath();
+
+        direct.add(path);
+
+        if (pIncludeStack.contains(path)){
+            writeComment(pOut, "recursive include skipped: " + name);
+            pParams.cacheable = false;
+            continue;
+        }
+
+        insertFragment(fragment, pOut, pIncludeStack, pParams, pSummary);
+
+    }
+
+    //copy the text following the last marker
+    pTemplate.writeLiteral(count, pOut);
+
+    return(direct);
+
+}//end of ContentEngine::insertContent
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::insertFragment
+//
+// Writes the fully expanded contents of pFragment to pOut.
+//
+// If the fragment is in the fragment cache, the cached bytes are used and the
+// dependencies recorded with them are copied to the dependency graph.
+// Otherwise the fragment is expanded, recording its own direct includes in
+// the dependency graph, and cached if the result does not depend on where it
+// was included.
+//
+
+private void insertFragment(File pFragment, OutputStream pOut,
+                ArrayList<String> pIncludeStack, ExpansionParameters pParams,
+                                RebuildSummary pSummary) throws IOException
+{
+
+    String path = pFragment.getPath();
+
+    FragmentCache.Entry cached = fragmentCache.get(path);
+
+    if (cached != null){
+        cached.writeTo(pOut);
+        for (FragmentCache.Dependency dependency : cached.dependencies){
+            recordIncludes(pParams, dependency.path, false,
+                             dependency.includes, dependency.lastModified);
+        }
+        pParams.dependencies.addAll(cached.dependencies);
+        return;
+    }
+
+    if (!pFragment.isFile()){
+        //record the missing fragment so the page is rebuilt when it appears
+        ArrayList<String> none = new ArrayList<String>();
+        recordIncludes(pParams, path, false, none, 0);
+        pParams.dependencies.add(new FragmentCache.Dependency(path, 0, none));
+        pParams.cacheable = false;
+        writeComment(pOut, "missing fragment: " + pFragment.getName());
+        pSummary.addError("Missing fragment: " + path);
+        return;
+    }
+
+    PipelineEvents.FragmentCacheMiss event = null;
+
+    if (PipelineEvents.enabled){
+        event = new PipelineEvents.FragmentCacheMiss();
+        event.begin();
+    }
+
+    CompiledTemplate template = templateCache.getTemplate(pFragment);
+
+    ExpansionParameters params = new ExpansionParameters();
+    params.recordIncludes = pParams.recordIncludes;
+    ByteArrayOutputStream expanded =
+                              new ByteArrayOutputStream(template.getSize() * 2);
+
+    pIncludeStack.add(path);
+
+    ArrayList<String> nested =
+          insertContent(template, expanded, pIncludeStack, params, pSummary);
+
+    pIncludeStack.remove(pIncludeStack.size() - 1);
+
+    recordIncludes(params, path, false, nested, template.lastModified);
+    params.dependencies.add(
+             new FragmentCache.Dependency(path, template.lastModified, nested));
+
+    expanded.writeTo(pOut);
+
+    if (params.cacheable){
+        fragmentCache.put(path, expanded, params.dependencies);
+    }
+
+    if (event != null){
+        event.fragment = path; event.size = expanded.size();
+        event.cached = params.cacheable;
+        event.commit();
+    }
+
+    pParams.dependencies.addAll(params.dependencies);
+    if (!params.cacheable) {pParams.cacheable = false;}
+
+}//end of ContentEngine::insertFragment
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::recordIncludes
+//
+// Records in the dependency graph that pNode, modified at pLastModified,
+// directly includes pIncludes, unless pParams is for an expansion which is
+// not written to the output folder.
+//
+
+private void recordIncludes(ExpansionParameters pParams, String pNode,
+            boolean pIsPage, Collection<String> pIncludes, long pLastModified)
+{
+
+    if (!pParams.recordIncludes) {return;}
+
+    dependencyGraph.setIncludes(pNode, pIsPage, pIncludes, pLastModified);
+
+}//end of ContentEngine::recordIncludes
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::writeComment
+//
+// Writes pText to pOut as an HTML comment.
+//
+
+static void writeComment(OutputStream pOut, String pText) throws IOException
+{
+
+    pOut.write(("<!-- " + pText + " -->").getBytes("UTF-8"));
+
+}//end of ContentEngine::writeComment
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::getOutputFile
+//
+// Returns the file in the output folder which corresponds to pPage in the
+// source folder.
+//
+
+File getOutputFile(File pPage)
+{
+
+    String source = new File(options.sourceFolder).getPath();
+    String path = pPage.getPath();
+
+    if (path.startsWith(source)) {path = path.substring(source.length());}
+
+    return(new File(options.outputFolder, path));
+
+}//end of ContentEngine::getOutputFile
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::getSourceFile
+//
+// Returns the file in the source folder which corresponds to pPath, a path
+// relative to the output folder separated by forward slashes.
+//
+
+File getSourceFile(String pPath)
+{
+
+    return(new File(options.sourceFolder,
+                                pPath.replace('/', File.separatorChar)));
+
+}//end of ContentEngine::getSourceFile
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::findPages
+//
+// Adds all HTML files in pFolder and its subfolders to pPages.
+//
+
+static void findPages(File pFolder, ArrayList<File> pPages)
+{
+
+    File[] files = pFolder.listFiles();
+
+    if (files == null) {return;}
+
+    for (File file : files){
+        if (file.isDirectory()) {findPages(file, pPages);}
+        else if (isPage(file.getName())) {pPages.add(file);}
+    }
+
+}//end of ContentEngine::findPages
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::isPage
+//
+// Returns true if pFilename has an HTML extension.
+//
+
+static boolean isPage(String pFilename)
+{
+
+    String name = pFilename.toLowerCase();
+
+    return(name.endsWith(".html") || name.endsWith(".htm")
+                                                    || name.endsWith(".shtml"));
+
+}//end of ContentEngine::isPage
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::saveDependencyGraph
+//
+// Saves the dependency graph and output hashes, recording any error in
+// pSummary.
+//
+
+private void saveDependencyGraph(RebuildSummary pSummary)
+{
+
+    try{
+        dependencyGraph.save(options.dependencyFilename);
+    }
+    catch(IOException e){
+        pSummary.addError("Error saving dependency graph: " + e.getMessage());
+    }
+
+    try{
+        outputHashes.save(options.outputHashFilename);
+    }
+    catch(IOException e){
+        pSummary.addError("Error saving output hashes: " + e.getMessage());
+    }
+
+}//end of ContentEngine::saveDependencyGraph
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::writeFile
+//
+// Writes pBytes to pFile, creating any missing parent folders. The bytes
+// are written to a temporary file beside pFile which then replaces it, so a
+// server never sees a partly written file.
+//
+
+static void writeFile(File pFile, byte[] pBytes) throws IOException
+{
+
+    File parent = pFile.getParentFile();
+    if (parent != null) {parent.mkdirs();}
+
+    File temp = new File(pFile.getPath() + ".tmp");
+
+    FileOutputStream out = null;
+
+    try{
+        out = new FileOutputStream(temp);
+        out.write(pBytes);
+        out.close(); out = null;
+        moveIntoPlace(temp, pFile);
+    }
+    finally{
+        if (out != null) {out.close();}
+        //nothing to delete if it was moved into place
+        temp.delete();
+    }
+
+}//end of ContentEngine::writeFile
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// ContentEngine::moveIntoPlace
+//
+// Replaces pFile with pTemp in one step where the file system allows it.
+//
+
+static void moveIntoPlace(File pTemp, File pFile) throws IOException
+{
+
+    try{
+        Files.move(pTemp.toPath(), pFile.toPath(),
+                                        StandardCopyOption.REPLACE_EXISTING,
+                                        StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch(AtomicMoveNotSupportedException e){
+        Files.move(pTemp.toPath(), pFile.toPath(),
+                                        StandardCopyOption.REPLACE_EXISTING);
+    }
+
+}//end of ContentEngine::moveIntoPlace
+//-----------------------------------------------------------------------------
+
+}//end of class ContentEngine
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
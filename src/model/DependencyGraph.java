@@ -0,0 +1,378 @@
+/******************************************************************************
+* Title: DependencyGraph.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class records which pages include which fragments so that a change to
+* a single fragment only causes the pages which actually use it to be
+* rebuilt.
+*
+* Each page or fragment is a node identified by its file path. The forward
+* edges list the fragments directly included by a node; the reverse edges list
+* the nodes which directly include a fragment. Nested includes are handled by
+* walking the reverse edges upwards until pages are reached.
+*
+* The last modified time of each node at the time it was last processed is
+* also stored so that changed files can be detected on the next run.
+*
+* The graph is saved to a text file between runs. Each line holds one node:
+*
+*   type <tab> last modified <tab> path <tab> include <tab> include ...
+*
+* where type is P for a page or F for a fragment.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.io.*;
+import java.util.*;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class DependencyGraph
+//
+
+public class DependencyGraph extends Object{
+
+    static final String FILE_FORMAT = "UTF-8";
+    static final String SEPARATOR = "\t";
+
+    //node path -> fragments directly included by that node
+    HashMap<String, HashSet<String>> includes;
+
+    //fragment path -> nodes which directly include that fragment
+    HashMap<String, HashSet<String>> includedBy;
+
+    //node path -> last modified time of the file when last processed
+    HashMap<String, Long> lastModified;
+
+    //the nodes which are pages rather than fragments
+    HashSet<String> pages;
+
+//-----------------------------------------------------------------------------
+// DependencyGraph::DependencyGraph (constructor)
+//
+
+public DependencyGraph()
+{
+
+}//end of DependencyGraph::DependencyGraph (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// DependencyGraph::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+
+public void init()
+{
+
+    includes = new HashMap<String, HashSet<String>>();
+    includedBy = new HashMap<String, HashSet<String>>();
+    lastModified = new HashMap<String, Long>();
+    pages = new HashSet<String>();
+
+}//end of DependencyGraph::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// DependencyGraph::setIncludes
+//
+// Replaces the list of fragments directly included by pNode with pIncludes
+// and records pLastModified as the node's modification time. Reverse edges
+// for fragments no longer included are removed.
+//
+// If pIsPage is true, the node is recorded as a page.
+//
+
+public synchronized void setIncludes(String pNode, boolean pIsPage,
+                            Collection<String> pIncludes, long pLastModified)
+{
+
+    removeForwardEdges(pNode);
+
+    HashSet<String> set = new HashSet<String>(pIncludes);
+    includes.put(pNode, set);
+
+    for (String fragment : set){
+        HashSet<String> parents = includedBy.get(fragment);
+        if (parents == null){
+            parents = new HashSet<String>();
+            includedBy.put(fragment, parents);
+        }
+        parents.add(pNode);
+    }
+
+    lastModified.put(pNode, pLastModified);
+
+    if (pIsPage) {pages.add(pNode);}
+
+}//end of DependencyGraph::setIncludes
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// DependencyGraph::removeNode
+//
+// Removes pNode and its forward edges from the graph. Used when a page has
+// been deleted from the source folder. Nodes which still include pNode keep
+// their edges so they will be rebuilt if the file reappears.
+//
+
+public synchronized void removeNode(String pNode)
+{
+
+    removeForwardEdges(pNode);
+    includes.remove(pNode);
+    lastModified.remove(pNode);
+    pages.remove(pNode);
+
+}//end of DependencyGraph::removeNode
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// DependencyGraph::removeForwardEdges
+//
+// Removes the reverse edges which point back to pNode from each of the
+// fragments it includes.
+//
+
+private void removeForwardEdges(String pNode)
+{
+
+    HashSet<String> old = includes.get(pNode);
+
+    if (old == null) {return;}
+
+    for (String fragment : old){
+        HashSet<String> parents = includedBy.get(fragment);
+        if (parents == null) {continue;}
+        parents.remove(pNode);
+        if (parents.isEmpty()) {includedBy.remove(fragment);}
+    }
+
+}//end of DependencyGraph::removeForwardEdges
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// DependencyGraph::getDependentPages
+//
+// Returns all pages which include pFragment either directly or through any
+// number of nested fragments.
+//
+
+public synchronized Set<String> getDependentPages(String pFragment)
+{
+
+    return(getDependentPages(Collections.singleton(pFragment)));
+
+}//end of DependencyGraph::getDependentPages
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// DependencyGraph::getDependentPages
+//
+// Returns all pages which include any of pFragments either directly or
+// through any number of nested fragments. The reverse edges are walked
+// breadth first; each node is visited only once so include cycles are
+// harmless.
+//
+
+public synchronized Set<String> getDependentPages(
+                                                Collection<String> pFragments)
+{
+
+    HashSet<String> result = new HashSet<String>();
+    HashSet<String> visited = new HashSet<String>(pFragments);
+    ArrayDeque<String> queue = new ArrayDeque<String>(pFragments);
+
+    while (!queue.isEmpty()){
+
+        String node = queue.poll();
+
+        HashSet<String> parents = includedBy.get(node);
+        if (parents == null) {continue;}
+
+        for (String parent : parents){
+            if (!visited.add(parent)) {continue;}
+            if (pages.contains(parent)) {result.add(parent);}
+            queue.add(parent);
+        }
+
+    }
+
+    return(result);
+
+}//end of DependencyGraph::getDependentPages
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// DependencyGraph::getPages
+//
+// Returns a copy of the set of pages in the graph.
+//
+
+public synchronized Set<String> getPages()
+{
+
+    return(new HashSet<String>(pages));
+
+}//end of DependencyGraph::getPages
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// DependencyGraph::getFragments
+//
+// Returns a copy of the set of all fragments included by any node.
+//
+
+public synchronized Set<String> getFragments()
+{
+
+    return(new HashSet<String>(includedBy.keySet()));
+
+}//end of DependencyGraph::getFragments
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// DependencyGraph::isChanged
+//
+// Returns true if pLastModified does not match the modification time recorded
+// for pNode when it was last processed or if the node is not in the graph.
+//
+
+public synchronized boolean isChanged(String pNode, long pLastModified)
+{
+
+    Long recorded = lastModified.get(pNode);
+
+    return(recorded == null || recorded.longValue() != pLastModified);
+
+}//end of DependencyGraph::isChanged
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// DependencyGraph::load
+//
+// Loads the graph from pFilename, replacing the current contents. If the file
+// does not exist the graph is left empty so that all pages will be treated as
+// changed.
+//
+
+public synchronized void load(String pFilename) throws IOException
+{
+
+    init();
+
+    FileInputStream fileInputStream = null;
+    InputStreamReader inputStreamReader = null;
+    BufferedReader in = null;
+
+    try{
+
+        fileInputStream = new FileInputStream(pFilename);
+        inputStreamReader = new InputStreamReader(fileInputStream, FILE_FORMAT);
+        in = new BufferedReader(inputStreamReader);
+
+        String line;
+
+        while ((line = in.readLine()) != null){
+
+            //skip blank lines and comments
+            if (line.length() == 0 || line.startsWith(";")) {continue;}
+
+            String[] fields = line.split(SEPARATOR);
+            if (fields.length < 3) {continue;}
+
+            long modified;
+            try {modified = Long.parseLong(fields[1]);}
+            catch(NumberFormatException e) {continue;}
+
+            setIncludes(fields[2], fields[0].equals("P"),
+                 Arrays.asList(fields).subList(3, fields.length), modified);
+
+        }
+
+    }
+    catch (FileNotFoundException e){
+        //no saved graph yet -- everything will be rebuilt
+    }
+    finally{
+        if (in != null) {in.close();}
+        if (inputStreamReader != null) {inputStreamReader.close();}
+        if (fileInputStream != null) {fileInputStream.close();}
+    }
+
+}//end of DependencyGraph::load
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// DependencyGraph::save
+//
+// Writes the graph to pFilename.
+//
+
+public synchronized void save(String pFilename) throws IOException
+{
+
+    FileOutputStream fileOutputStream = null;
+    OutputStreamWriter outputStreamWriter = null;
+    BufferedWriter out = null;
+
+    try{
+
+        fileOutputStream = new FileOutputStream(pFilename);
+        outputStreamWriter =
+                         new OutputStreamWriter(fileOutputStream, FILE_FORMAT);
+        out = new BufferedWriter(outputStreamWriter);
+
+        out.write(";Dependency graph -- generated file, do not edit.");
+        out.newLine();
+
+        StringBuilder line = new StringBuilder(200);
+
+        for (Map.Entry<String, HashSet<String>> entry : includes.entrySet()){
+
+            String node = entry.getKey();
+
+            line.setLength(0);
+            line.append(pages.contains(node) ? "P" : "F");
+            line.append(SEPARATOR).append(lastModified.get(node));
+            line.append(SEPARATOR).append(node);
+
+            for (String fragment : entry.getValue()){
+                line.append(SEPARATOR).append(fragment);
+            }
+
+            out.write(line.toString());
+            out.newLine();
+
+        }
+
+        //Note! You MUST flush to make sure everything is written.
+
+        out.flush();
+
+    }
+    finally{
+        if (out != null) {out.close();}
+        if (outputStreamWriter != null) {outputStreamWriter.close();}
+        if (fileOutputStream != null) {fileOutputStream.close();}
+    }
+
+}//end of DependencyGraph::save
+//-----------------------------------------------------------------------------
+
+}//end of class DependencyGraph
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,47 @@
+/******************************************************************************
+* Title: ExpansionParameters.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class is used to wrap variables for use as parameters in function calls
+* which expand templates. It collects what the ContentEngine learns about a
+* page or fragment while expanding it.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.util.ArrayList;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class ExpansionParameters
+//
+
+public class ExpansionParameters extends Object{
+
+    //every fragment used during the expansion
+    ArrayList<FragmentCache.Dependency> dependencies =
+                                    new ArrayList<FragmentCache.Dependency>();
+
+    //false if a missing fragment or include cycle was found -- the result
+    //then depends on where it was included and must not be cached
+    boolean cacheable = true;
+
+    //false if the result is only rendered and not written to the output
+    //folder -- the includes are then not recorded in the dependency graph,
+    //which must only describe the pages in the output folder
+    boolean recordIncludes = true;
+
+}//end of class ExpansionParameters
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
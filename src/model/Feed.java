@@ -0,0 +1,72 @@
+/******************************************************************************
+* Title: Feed.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class holds the settings for one remote XML source: its URL, how
+* often it is polled, how long a fetch may take, how failed fetches are
+* retried, and which of its elements are copied into which fragments.
+*
+* Feeds are loaded from the settings file by Options and polled by the
+* Controller's FeedPoller.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.util.LinkedHashMap;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class Feed
+//
+
+public class Feed extends Object{
+
+    public String name;
+    public String url;
+
+    //seconds between polls -- 0 if the feed is only fetched on request
+    public int interval = 300;
+
+    //up to this many seconds are added at random to each interval so feeds
+    //with the same interval do not all fire together
+    public int jitter = 0;
+
+    //milliseconds allowed for the server to respond
+    public int timeout = 10000;
+
+    //number of times a failed fetch is retried before waiting for the next
+    //interval, and the delay in milliseconds before the first retry -- the
+    //delay doubles with each retry up to an hour
+    public int retries = 3;
+    public int retryBackoff = 5000;
+
+    //XML element name -> fragment name
+    public LinkedHashMap<String, String> elements =
+                                          new LinkedHashMap<String, String>();
+
+//-----------------------------------------------------------------------------
+// Feed::Feed (constructor)
+//
+
+public Feed(String pName, String pURL)
+{
+
+    name = pName; url = pURL;
+
+}//end of Feed::Feed (constructor)
+//-----------------------------------------------------------------------------
+
+}//end of class Feed
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
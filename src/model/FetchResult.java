@@ -0,0 +1,65 @@
+/******************************************************************************
+* Title: FetchResult.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class holds the result of fetching a remote page with RemoteFetcher:
+* the HTTP status, whether the page changed since the last fetch, and the
+* local file holding the page's contents.
+*
+* The changed flag is relative to the last fetch of the URL by any caller.
+* Callers which share a URL compare the version with the one they last
+* ingested instead, as another caller may have received the change.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.io.File;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class FetchResult
+//
+
+public class FetchResult extends Object{
+
+    public String url;
+    public int status;
+
+    //false if the server reported the page was not modified
+    public boolean changed;
+
+    //the local copy of the page
+    public File file;
+
+    //identifies the content of the local copy; a new value is assigned each
+    //time a changed page is received
+    public String version;
+
+//-----------------------------------------------------------------------------
+// FetchResult::FetchResult (constructor)
+//
+
+public FetchResult(String pURL, int pStatus, boolean pChanged, File pFile,
+                                                            String pVersion)
+{
+
+    url = pURL; status = pStatus; changed = pChanged; file = pFile;
+    version = pVersion;
+
+}//end of FetchResult::FetchResult (constructor)
+//-----------------------------------------------------------------------------
+
+}//end of class FetchResult
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
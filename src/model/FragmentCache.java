@@ -0,0 +1,350 @@
+/******************************************************************************
+* Title: FragmentCache.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class caches fully expanded fragments -- the bytes produced after all
+* nested includes have been inserted -- so that a fragment used by many pages
+* is only expanded once.
+*
+* The cache is limited by a byte budget rather than by a number of entries.
+* When the total size of the cached fragments exceeds the budget, the least
+* recently used fragments are discarded until it fits again. A fragment larger
+* than the entire budget is never cached.
+*
+* Optionally, fragments at or above a size threshold are stored outside the
+* Java heap in direct ByteBuffers. This keeps large fragments from adding to
+* garbage collection work. The memory for a discarded direct buffer is
+* released when the buffer object is collected.
+*
+* Each entry records every file used to build it along with its modification
+* time. If any of those files has changed, the entry is discarded on the next
+* lookup.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class FragmentCache
+//
+
+public class FragmentCache extends Object{
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class Dependency
+//
+// Records a fragment used to build a cached entry: its path, modification
+// time, and the fragments it directly includes.
+//
+
+static class Dependency {
+
+    String path;
+    long lastModified;
+    Collection<String> includes;
+
+//-----------------------------------------------------------------------------
+// Dependency::Dependency (constructor)
+//
+
+public Dependency(String pPath, long pLastModified,
+                                                Collection<String> pIncludes)
+{
+
+    path = pPath; lastModified = pLastModified; includes = pIncludes;
+
+}// end of Dependency::Dependency (constructor)
+//-----------------------------------------------------------------------------
+
+}//end of class Dependency
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class Entry
+//
+// Holds the expanded bytes of one fragment either in a heap array or in a
+// direct buffer.
+//
+
+static class Entry {
+
+    byte[] heapBytes;
+    ByteBuffer directBytes;
+    int size;
+
+    ArrayList<Dependency> dependencies;
+
+//-----------------------------------------------------------------------------
+// Entry::writeTo
+//
+// Writes the expanded fragment to pOut. A direct buffer is copied through a
+// small heap array since it has no backing array.
+//
+
+public void writeTo(OutputStream pOut) throws IOException
+{
+
+    if (heapBytes != null){
+        pOut.write(heapBytes, 0, size);
+        return;
+    }
+
+    ByteBuffer buffer = directBytes.duplicate();
+    buffer.clear();
+
+    byte[] chunk = new byte[Math.min(size, 8192)];
+
+    while (buffer.hasRemaining()){
+        int count = Math.min(chunk.length, buffer.remaining());
+        buffer.get(chunk, 0, count);
+        pOut.write(chunk, 0, count);
+    }
+
+}// end of Entry::writeTo
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Entry::isCurrent
+//
+// Returns true if none of the files used to build the entry have been
+// modified, created, or deleted since it was cached.
+//
+
+public boolean isCurrent()
+{
+
+    for (Dependency dependency : dependencies){
+        long modified = new File(dependency.path).lastModified();
+        if (modified != dependency.lastModified) {return(false);}
+    }
+
+    return(true);
+
+}// end of Entry::isCurrent
+//-----------------------------------------------------------------------------
+
+}//end of class Entry
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+
+    long budget;
+    boolean offHeap;
+    int offHeapThreshold;
+
+    LinkedHashMap<String, Entry> entries;
+
+    long totalBytes = 0, offHeapBytes = 0;
+    long hits = 0, misses = 0, evictions = 0, evictedBytes = 0, rejected = 0;
+
+//-----------------------------------------------------------------------------
+// FragmentCache::FragmentCache (constructor)
+//
+// pBudget is the maximum number of bytes to be held by all entries. If
+// pOffHeap is true, fragments of pOffHeapThreshold bytes or larger are stored
+// in direct buffers.
+//
+
+public FragmentCache(long pBudget, boolean pOffHeap, int pOffHeapThreshold)
+{
+
+    budget = pBudget; offHeap = pOffHeap; offHeapThreshold = pOffHeapThreshold;
+
+}//end of FragmentCache::FragmentCache (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FragmentCache::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+
+public void init()
+{
+
+    //access ordered so the eldest entry is always the least recently used
+    entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+}//end of FragmentCache::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FragmentCache::get
+//
+// Returns the cached entry for the fragment at pPath or null if it is not
+// cached or any of the files used to build it have changed.
+//
+// The entry's files are checked without holding the lock, since each check
+// reads a modification time from disk and would otherwise hold up every
+// other thread using the cache. An entry is never changed once cached, so
+// it may still be used if another thread evicts it meanwhile.
+//
+
+public Entry get(String pPath)
+{
+
+    Entry entry;
+
+    synchronized(this) {entry = entries.get(pPath);}
+
+    boolean current = entry != null && entry.isCurrent();
+
+    synchronized(this){
+
+        if (entry != null && !current){
+            //another thread may have replaced the entry in the meantime
+            if (entries.get(pPath) == entry) {remove(pPath, entry);}
+            entry = null;
+        }
+
+        if (entry == null) {misses++;} else {hits++;}
+
+    }
+
+    return(entry);
+
+}//end of FragmentCache::get
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FragmentCache::put
+//
+// Caches pBytes as the expanded fragment at pPath. pDependencies lists every
+// fragment used to build it, including the fragment itself. The least
+// recently used entries are discarded until the budget is met.
+//
+
+public synchronized void put(String pPath, ByteArrayOutputStream pBytes,
+                                            ArrayList<Dependency> pDependencies)
+{
+
+    int size = pBytes.size();
+
+    if (size > budget) {rejected++; return;}
+
+    Entry entry = new Entry();
+    entry.size = size;
+    entry.dependencies = pDependencies;
+
+    if (offHeap && size >= offHeapThreshold){
+        entry.directBytes = ByteBuffer.allocateDirect(size);
+        entry.directBytes.put(pBytes.toByteArray());
+        offHeapBytes += size;
+    }
+    else{
+        entry.heapBytes = pBytes.toByteArray();
+    }
+
+    Entry old = entries.get(pPath);
+    if (old != null) {remove(pPath, old);}
+
+    entries.put(pPath, entry);
+    totalBytes += size;
+
+    //discard least recently used entries until the budget is met
+
+    Iterator<Map.Entry<String, Entry>> i = entries.entrySet().iterator();
+
+    while (totalBytes > budget && i.hasNext()){
+        Entry eldest = i.next().getValue();
+        i.remove();
+        release(eldest);
+        evictions++;
+        evictedBytes += eldest.size;
+    }
+
+}//end of FragmentCache::put
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FragmentCache::remove
+//
+// Removes pEntry stored under pPath.
+//
+
+private void remove(String pPath, Entry pEntry)
+{
+
+    entries.remove(pPath);
+    release(pEntry);
+
+}//end of FragmentCache::remove
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FragmentCache::release
+//
+// Subtracts the size of pEntry from the byte totals.
+//
+
+private void release(Entry pEntry)
+{
+
+    totalBytes -= pEntry.size;
+    if (pEntry.directBytes != null) {offHeapBytes -= pEntry.size;}
+
+}//end of FragmentCache::release
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FragmentCache::getHits
+//
+
+public synchronized long getHits()
+{
+
+    return(hits);
+
+}//end of FragmentCache::getHits
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FragmentCache::getMisses
+//
+
+public synchronized long getMisses()
+{
+
+    return(misses);
+
+}//end of FragmentCache::getMisses
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// FragmentCache::getStatistics
+//
+// Returns a one line description of the cache usage and eviction counts.
+//
+
+public synchronized String getStatistics()
+{
+
+    return("Fragment cache: " + entries.size() + " fragments, "
+          + totalBytes + " of " + budget + " bytes (" + offHeapBytes
+          + " off heap), " + hits + " hits, " + misses + " misses, "
+          + evictions + " evictions (" + evictedBytes + " bytes), "
+          + rejected + " too large");
+
+}//end of FragmentCache::getStatistics
+//-----------------------------------------------------------------------------
+
+}//end of class FragmentCache
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,525 @@
+/******************************************************************************
+* Title: HtmlMinifier.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class is an output stream which minifies HTML as it is written to it.
+*
+* The ContentEngine writes each page through it while inserting content, so
+* minifying costs no extra pass over the page: every byte is examined once as
+* it goes by and passed on to the underlying stream or dropped.
+*
+* The following changes are made:
+*
+*   each run of whitespace in text or between attributes becomes one space,
+*    or one newline if the run contained a newline
+*   comments are removed, except conditional comments such as <!--[if IE]>
+*    and comments beginning with <!--! which are kept by convention
+*
+* The contents of pre, textarea, script, and style elements are passed
+* through untouched, as are quoted attribute values, since whitespace is
+* significant there.
+*
+* Only ASCII bytes are examined, so UTF-8 text passes through unchanged and
+* is never decoded. Tag names are compared as bytes against names encoded
+* once, and runs of text and raw element contents which need no change are
+* passed on in a single write rather than a byte at a time.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class HtmlMinifier
+//
+
+public class HtmlMinifier extends OutputStream{
+
+    //parser states
+
+    static final int TEXT = 0;
+    static final int TAG_START = 1;     //after '<', before deciding what it is
+    static final int TAG = 2;
+    static final int COMMENT = 3;
+    static final int RAW = 4;           //inside pre, script, etc.
+
+    static final String[] RAW_ELEMENTS = {"pre", "textarea", "script", "style"};
+
+    //the raw element names and their closing tags, encoded once
+    static final byte[][] RAW_NAMES = new byte[RAW_ELEMENTS.length][];
+    static final byte[][] RAW_ENDS = new byte[RAW_ELEMENTS.length][];
+
+    static{
+        for (int i = 0; i < RAW_ELEMENTS.length; i++){
+            RAW_NAMES[i] = toAscii(RAW_ELEMENTS[i]);
+            RAW_ENDS[i] = toAscii("</" + RAW_ELEMENTS[i]);
+        }
+    }
+
+    static final byte[] COMMENT_START = toAscii("<!--");
+
+    static final int MAX_NAME = 16;
+
+    OutputStream out;
+
+    int state = TEXT;
+
+    //whitespace waiting to be written as a single character: 0 for none,
+    //otherwise the space or newline to be written
+    int pendingSpace = 0;
+
+    //bytes held while deciding whether '<' starts a comment
+    byte[] held = new byte[4];
+    int heldCount = 0;
+
+    //the name of the tag being parsed, in lower case
+    byte[] tagName = new byte[MAX_NAME];
+    int tagNameLength = 0;
+    boolean nameDone = false;
+    boolean closingTag = false;
+    int quote = 0;
+
+    //true if the current comment is being kept
+    boolean keepComment = false;
+    int dashes = 0;
+
+    //the closing tag which ends the current raw element and how much of it
+    //has been matched
+    byte[] rawEnd;
+    int rawMatched = 0;
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::HtmlMinifier (constructor)
+//
+
+public HtmlMinifier(OutputStream pOut)
+{
+
+    out = pOut;
+
+}//end of HtmlMinifier::HtmlMinifier (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::write
+//
+
+@Override
+public void write(byte[] pBytes, int pOffset, int pLength) throws IOException
+{
+
+    int end = pOffset + pLength;
+    int i = pOffset;
+
+    while (i < end){
+
+        int run = i;
+
+        //text without whitespace or tags and raw contents without a '<' are
+        //passed on unchanged, so they are written as a whole run
+
+        if (state == TEXT){
+            while (run < end && pBytes[run] != '<' && !isSpace(pBytes[run])){
+                run++;
+            }
+            if (run > i) {writePendingSpace();}
+        }
+        else if (state == RAW && rawMatched == 0){
+            while (run < end && pBytes[run] != '<') {run++;}
+        }
+
+        if (run > i) {out.write(pBytes, i, run - i); i = run; continue;}
+
+        write(pBytes[i++]);
+
+    }
+
+}//end of HtmlMinifier::write
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::write
+//
+// Processes one byte according to the current state.
+//
+
+@Override
+public void write(int pByte) throws IOException
+{
+
+    int b = pByte & 0xff;
+
+    switch (state){
+        case TEXT: writeText(b); break;
+        case TAG_START: writeTagStart(b); break;
+        case TAG: writeTag(b); break;
+        case COMMENT: writeComment(b); break;
+        case RAW: writeRaw(b); break;
+        default: break;
+    }
+
+}//end of HtmlMinifier::write
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::writeText
+//
+// Handles a byte of text between tags.
+//
+
+private void writeText(int pByte) throws IOException
+{
+
+    if (isSpace(pByte)) {addSpace(pByte); return;}
+
+    if (pByte == '<'){
+        held[0] = '<';
+        heldCount = 1;
+        state = TAG_START;
+        return;
+    }
+
+    writePendingSpace();
+    out.write(pByte);
+
+}//end of HtmlMinifier::writeText
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::writeTagStart
+//
+// Handles a byte following '<'. The bytes are held until it is known whether
+// they start a comment.
+//
+
+private void writeTagStart(int pByte) throws IOException
+{
+
+    if (heldCount < 4 && pByte == COMMENT_START[heldCount]){
+        //once "<!--" is complete, the next byte decides whether the comment
+        //is kept
+        held[heldCount++] = (byte)pByte;
+        return;
+    }
+
+    if (heldCount == 4){
+        startComment(pByte);
+        return;
+    }
+
+    //a '<' not followed by a name, '/', or '!' is just text
+
+    if (heldCount == 1 && pByte != '/' && !isNameChar(pByte)){
+        heldCount = 0;
+        state = TEXT;
+        writePendingSpace();
+        out.write('<');
+        writeText(pByte);
+        return;
+    }
+
+    //not a comment -- write the held bytes and parse the rest as a tag
+
+    writePendingSpace();
+    out.write(held, 0, heldCount);
+
+    tagNameLength = 0;
+    nameDone = false;
+    closingTag = heldCount == 1 && pByte == '/';
+    quote = 0;
+    state = TAG;
+
+    //"<!" and "<!-" start declarations rather than named tags
+    if (heldCount > 1) {nameDone = true;}
+
+    heldCount = 0;
+
+    writeTag(pByte);
+
+}//end of HtmlMinifier::writeTagStart
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::startComment
+//
+// Handles the first byte after "<!--".
+//
+
+private void startComment(int pByte) throws IOException
+{
+
+    heldCount = 0;
+    dashes = 0;
+    state = COMMENT;
+
+    keepComment = pByte == '[' || pByte == '!';
+
+    if (keepComment){
+        writePendingSpace();
+        out.write(COMMENT_START);
+    }
+
+    writeComment(pByte);
+
+}//end of HtmlMinifier::startComment
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::writeComment
+//
+// Handles a byte inside a comment, which ends at "-->".
+//
+
+private void writeComment(int pByte) throws IOException
+{
+
+    if (keepComment) {out.write(pByte);}
+
+    if (pByte == '>' && dashes >= 2){
+        state = TEXT;
+        return;
+    }
+
+    dashes = pByte == '-' ? dashes + 1 : 0;
+
+}//end of HtmlMinifier::writeComment
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::writeTag
+//
+// Handles a byte inside a tag. Whitespace outside quoted values is
+// collapsed. At the end of an opening tag for a raw element, switches to
+// passing bytes through until its closing tag.
+//
+
+private void writeTag(int pByte) throws IOException
+{
+
+    if (quote != 0){
+        out.write(pByte);
+        if (pByte == quote) {quote = 0;}
+        return;
+    }
+
+    if (!nameDone){
+        if (isNameChar(pByte)){
+            if (tagNameLength < MAX_NAME){
+                tagName[tagNameLength++] = (byte)toLower(pByte);
+            }
+            out.write(pByte);
+            return;
+        }
+        if (!(pByte == '/' && tagNameLength == 0)) {nameDone = true;}
+    }
+
+    if (isSpace(pByte)) {addSpace(pByte); return;}
+
+    if (pByte == '>'){
+        pendingSpace = 0;
+        out.write(pByte);
+        state = TEXT;
+        if (!closingTag) {startRaw();}
+        return;
+    }
+
+    writePendingSpace();
+    out.write(pByte);
+
+    if (pByte == '"' || pByte == '\'') {quote = pByte;}
+
+}//end of HtmlMinifier::writeTag
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::startRaw
+//
+// Switches to raw mode if the tag just ended opens a raw element.
+//
+
+private void startRaw()
+{
+
+    for (int i = 0; i < RAW_NAMES.length; i++){
+        if (Arrays.equals(RAW_NAMES[i], 0, RAW_NAMES[i].length,
+                                                tagName, 0, tagNameLength)){
+            rawEnd = RAW_ENDS[i];
+            rawMatched = 0;
+            state = RAW;
+            return;
+        }
+    }
+
+}//end of HtmlMinifier::startRaw
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::writeRaw
+//
+// Passes a byte of a raw element's contents through untouched, watching for
+// the element's closing tag.
+//
+
+private void writeRaw(int pByte) throws IOException
+{
+
+    out.write(pByte);
+
+    if (toLower(pByte) == rawEnd[rawMatched]){
+        rawMatched++;
+    }
+    else{
+        rawMatched = pByte == '<' ? 1 : 0;
+    }
+
+    if (rawMatched < rawEnd.length) {return;}
+
+    //the rest of the closing tag is parsed as a normal tag
+    tagNameLength = rawEnd.length - 2;
+    System.arraycopy(rawEnd, 2, tagName, 0, tagNameLength);
+    nameDone = false;
+    closingTag = true;
+    quote = 0;
+    state = TAG;
+
+}//end of HtmlMinifier::writeRaw
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::addSpace
+//
+// Records whitespace byte pByte to be written as part of a single space.
+//
+
+private void addSpace(int pByte)
+{
+
+    if (pByte == '\n' || pByte == '\r') {pendingSpace = '\n';}
+    else if (pendingSpace == 0) {pendingSpace = ' ';}
+
+}//end of HtmlMinifier::addSpace
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::writePendingSpace
+//
+// Writes any whitespace waiting to be written.
+//
+
+private void writePendingSpace() throws IOException
+{
+
+    if (pendingSpace == 0) {return;}
+
+    out.write(pendingSpace);
+    pendingSpace = 0;
+
+}//end of HtmlMinifier::writePendingSpace
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::finish
+//
+// Writes anything still held at the end of the page. Must be called after
+// the last byte has been written. Does not close the underlying stream.
+//
+
+public void finish() throws IOException
+{
+
+    if (state == TAG_START) {out.write(held, 0, heldCount);}
+
+    heldCount = 0;
+    pendingSpace = 0;
+    state = TEXT;
+
+    out.flush();
+
+}//end of HtmlMinifier::finish
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::flush
+//
+
+@Override
+public void flush() throws IOException
+{
+
+    out.flush();
+
+}//end of HtmlMinifier::flush
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::isSpace
+//
+
+static boolean isSpace(int pByte)
+{
+
+    return(pByte == ' ' || pByte == '\n' || pByte == '\r' || pByte == '\t'
+                                                            || pByte == '\f');
+
+}//end of HtmlMinifier::isSpace
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::isNameChar
+//
+
+static boolean isNameChar(int pByte)
+{
+
+    return((pByte >= 'a' && pByte <= 'z') || (pByte >= 'A' && pByte <= 'Z')
+                            || (pByte >= '0' && pByte <= '9') || pByte == '-');
+
+}//end of HtmlMinifier::isNameChar
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::toLower
+//
+// Returns pByte in lower case if it is an ASCII letter. Other bytes,
+// including those of multibyte UTF-8 characters, are returned unchanged.
+//
+
+static int toLower(int pByte)
+{
+
+    return(pByte >= 'A' && pByte <= 'Z' ? pByte + ('a' - 'A') : pByte);
+
+}//end of HtmlMinifier::toLower
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// HtmlMinifier::toAscii
+//
+// Returns the bytes of ASCII string pText.
+//
+
+static byte[] toAscii(String pText)
+{
+
+    return(pText.getBytes(StandardCharsets.US_ASCII));
+
+}//end of HtmlMinifier::toAscii
+//-----------------------------------------------------------------------------
+
+}//end of class HtmlMinifier
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -308,6 +308,13 @@ public IniFile(String pFilename, String pFileFormat) throws IOException
     DecimalFormats[9] = new  DecimalFormat("#.#########");
     DecimalFormats[10] = new DecimalFormat("#.##########");
 
+    PipelineEvents.IniFileAccess event = null;
+
+    if (PipelineEvents.enabled){
+        event = new PipelineEvents.IniFileAccess();
+        event.begin();
+    }
+
     //create a buffered reader stream to the language file
 
     FileInputStream fileInputStream = null;
@@ -349,6 +356,12 @@ public IniFile(String pFilename, String pFileFormat) throws IOException
         if (fileInputStream != null) {fileInputStream.close();}
     }
 
+    if (event != null){
+        event.file = filename; event.operation = "load";
+        event.lines = buffer.size();
+        event.commit();
+    }
+
 }//end of IniFile::IniFile (constructor)
 //-----------------------------------------------------------------------------
 
@@ -361,6 +374,13 @@ public IniFile(String pFilename, String pFileFormat) throws IOException
 public void save()
 {
 
+    PipelineEvents.IniFileAccess event = null;
+
+    if (PipelineEvents.enabled){
+        event = new PipelineEvents.IniFileAccess();
+        event.begin();
+    }
+
     //create a buffered writer stream
 
     FileOutputStream fileOutputStream = null;
@@ -399,6 +419,12 @@ public void save()
         catch(IOException e){}
     }
 
+    if (event != null){
+        event.file = filename; event.operation = "save";
+        event.lines = buffer.size();
+        event.commit();
+    }
+
 }//end of IniFile::save
 //-----------------------------------------------------------------------------
 
@@ -0,0 +1,333 @@
+/******************************************************************************
+* Title: MappedTemplate.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class is a CompiledTemplate for a page too large to be read into
+* memory, such as a generated catalog or report of hundreds of megabytes.
+*
+* Rather than reading the file into an array, it is mapped into memory a
+* window at a time with a MappedByteBuffer and scanned for include markers
+* directly on the mapped bytes. Only the positions of the literal spans and
+* the fragment names are kept. When the page is expanded, each literal span
+* is copied from the mapped windows straight to the output, so the
+* untouched regions which make up nearly all of such a page are never held
+* on the heap all at once and are never decoded to characters.
+*
+* As with CompiledTemplate, markers are ASCII and matched on the UTF-8 bytes.
+* Windows overlap so that a marker lying across the boundary between two
+* windows is still found.
+*
+* The file is held open until close is called. It must not be modified
+* while the template is in use -- a file truncated while mapped causes an
+* error when the missing bytes are read.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class MappedTemplate
+//
+
+public class MappedTemplate extends CompiledTemplate{
+
+    //size of each window mapped while scanning and copying
+    static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    //markers which start within this many bytes of the end of a window are
+    //scanned in the next window so that they are not split -- a longer
+    //marker is still found, but its window must be mapped again
+    static final int WINDOW_OVERLAP = 4096;
+
+    //size of the chunks copied from a window to the output
+    static final int COPY_SIZE = 64 * 1024;
+
+    FileChannel channel;
+    long size;
+
+    long[] mappedLiteralStarts;
+    long[] mappedLiteralEnds;
+
+    //the window last mapped for copying and the position in the file at
+    //which it begins
+    MappedByteBuffer window;
+    long windowStart;
+
+    byte[] chunk;
+
+//-----------------------------------------------------------------------------
+// MappedTemplate::MappedTemplate (constructor)
+//
+
+public MappedTemplate(String pPath, long pLastModified)
+{
+
+    super(pPath, pLastModified);
+
+}//end of MappedTemplate::MappedTemplate (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// MappedTemplate::compile
+//
+// Opens the file and splits it into literal spans and insertion slots. A
+// marker without a valid file attribute is left in the literal text
+// untouched.
+//
+
+public void compile() throws IOException
+{
+
+    channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+    size = channel.size();
+
+    ArrayList<Long> starts = new ArrayList<Long>();
+    ArrayList<Long> ends = new ArrayList<Long>();
+    ArrayList<String> names = new ArrayList<String>();
+
+    long literalStart = 0;
+
+    long base = 0;
+    MappedByteBuffer scan = map(base);
+    int offset = 0;
+
+    while (true){
+
+        int limit = scan.limit();
+        boolean last = base + limit == size;
+
+        int start = indexOf(scan, INCLUDE_START, offset, limit);
+
+        //move on to the next window when this one has been scanned up to the
+        //overlap, starting it at any marker found in the overlap -- but not
+        //before the end of the last marker, which may reach into the overlap
+
+        if (start == -1 || (!last && start >= limit - WINDOW_OVERLAP)){
+            if (last) {break;}
+            base += start != -1 ? start :
+                                    Math.max(offset, limit - WINDOW_OVERLAP);
+            scan = map(base); offset = 0;
+            continue;
+        }
+
+        int end = indexOf(scan, INCLUDE_END, start + INCLUDE_START.length,
+                                                                        limit);
+
+        if (end == -1){
+            //with no end in the rest of the file, the rest is literal
+            if (last) {break;}
+            //look for the end in a window beginning at the marker
+            if (start > 0) {base += start; scan = map(base); offset = 0;}
+            //a marker longer than a whole window is left as literal text
+            else {offset = INCLUDE_START.length;}
+            continue;
+        }
+
+        offset = end + INCLUDE_END.length;
+
+        String name = parseFileAttribute(scan, start, end);
+
+        //not a valid marker, so leave it in the literal
+        if (name == null) {continue;}
+
+        starts.add(literalStart); ends.add(base + start); names.add(name);
+
+        literalStart = base + offset;
+
+    }
+
+    starts.add(literalStart); ends.add(size);
+
+    mappedLiteralStarts = new long[starts.size()];
+    mappedLiteralEnds = new long[ends.size()];
+
+    for (int i = 0; i < mappedLiteralStarts.length; i++){
+        mappedLiteralStarts[i] = starts.get(i);
+        mappedLiteralEnds[i] = ends.get(i);
+    }
+
+    slots = names.toArray(new String[names.size()]);
+
+}//end of MappedTemplate::compile
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// MappedTemplate::writeLiteral
+//
+// Writes literal span pIndex to pOut, copying it from the mapped file a
+// chunk at a time. Since the spans are normally written in order, each
+// window mapped is used for as many spans as lie within it.
+//
+
+@Override
+public void writeLiteral(int pIndex, OutputStream pOut) throws IOException
+{
+
+    long position = mappedLiteralStarts[pIndex];
+    long end = mappedLiteralEnds[pIndex];
+
+    if (chunk == null) {chunk = new byte[COPY_SIZE];}
+
+    while (position < end){
+
+        if (window == null || position < windowStart
+                            || position >= windowStart + window.limit()){
+            windowStart = position;
+            window = map(windowStart);
+        }
+
+        int index = (int)(position - windowStart);
+        int count = (int)Math.min(Math.min(end - position, COPY_SIZE),
+                                                    window.limit() - index);
+
+        window.get(index, chunk, 0, count);
+        pOut.write(chunk, 0, count);
+
+        position += count;
+
+    }
+
+}//end of MappedTemplate::writeLiteral
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// MappedTemplate::getSize
+//
+// Returns the size in bytes of the file or the largest int if it is larger.
+//
+
+@Override
+public int getSize()
+{
+
+    return((int)Math.min(size, Integer.MAX_VALUE));
+
+}//end of MappedTemplate::getSize
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// MappedTemplate::getFileSize
+//
+// Returns the size in bytes of the file.
+//
+
+public long getFileSize()
+{
+
+    return(size);
+
+}//end of MappedTemplate::getFileSize
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// MappedTemplate::close
+//
+// Closes the file. The mapped windows are released when they are garbage
+// collected.
+//
+
+public void close() throws IOException
+{
+
+    window = null;
+
+    if (channel != null) {channel.close();}
+
+}//end of MappedTemplate::close
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// MappedTemplate::map
+//
+// Maps the window of the file which begins at pPosition.
+//
+
+private MappedByteBuffer map(long pPosition) throws IOException
+{
+
+    long length = Math.min(WINDOW_SIZE, size - pPosition);
+
+    return(channel.map(FileChannel.MapMode.READ_ONLY, pPosition, length));
+
+}//end of MappedTemplate::map
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// MappedTemplate::parseFileAttribute
+//
+// Returns the value of the file="..." attribute in the marker which lies
+// between pStart and pEnd in pBuffer or null if the attribute is not
+// present.
+//
+
+static String parseFileAttribute(ByteBuffer pBuffer, int pStart, int pEnd)
+{
+
+    int start = indexOf(pBuffer, FILE_ATTRIBUTE, pStart, pEnd);
+    if (start == -1) {return(null);}
+    start += FILE_ATTRIBUTE.length;
+
+    int end = start;
+    while (end < pEnd && pBuffer.get(end) != '"') {end++;}
+    if (end == pEnd || end == start) {return(null);}
+
+    byte[] name = new byte[end - start];
+    pBuffer.get(start, name);
+
+    return(new String(name, StandardCharsets.UTF_8));
+
+}//end of MappedTemplate::parseFileAttribute
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// MappedTemplate::indexOf
+//
+// Returns the index of the first occurrence of pPattern in pBuffer between
+// pFrom and pTo or -1 if not found.
+//
+
+static int indexOf(ByteBuffer pBuffer, byte[] pPattern, int pFrom, int pTo)
+{
+
+    byte first = pPattern[0];
+    int last = pTo - pPattern.length;
+
+    for (int i = pFrom; i <= last; i++){
+
+        if (pBuffer.get(i) != first) {continue;}
+
+        int j = 1;
+        while (j < pPattern.length && pBuffer.get(i + j) == pPattern[j]) {j++;}
+
+        if (j == pPattern.length) {return(i);}
+
+    }
+
+    return(-1);
+
+}//end of MappedTemplate::indexOf
+//-----------------------------------------------------------------------------
+
+}//end of class MappedTemplate
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,546 @@
+/******************************************************************************
+* Title: Metrics.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class is a registry of named measurements of the running program:
+*
+*   counters, which count events such as pages processed
+*   gauges, which read a current value such as the job queue depth from the
+*    object which owns it whenever the registry is read
+*   histograms, which record the distribution of durations such as the time
+*    taken to process each page, so tail latencies can be reported
+*
+* Metrics are created or registered by name and may be updated from any
+* thread without locking. The whole registry can be written out as a text
+* snapshot or in the Prometheus text exposition format for scraping.
+*
+* The histograms work like an HDR histogram: values are counted in buckets
+* whose width grows with the value, 32 buckets for each power of two, so any
+* recorded value is known to within about 3% using a fixed 15 kB array, no
+* matter how many values are recorded.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class Metrics
+//
+
+public class Metrics extends Object{
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// interface Gauge
+//
+// Reads a current value for the registry.
+//
+
+public interface Gauge {
+
+    double getValue();
+
+}//end of interface Gauge
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class Counter
+//
+// A count which only goes up. Cheap to update from many threads at once.
+//
+
+public static class Counter {
+
+    LongAdder count = new LongAdder();
+
+    public void increment() { count.increment(); }
+
+    public void add(long pAmount) { count.add(pAmount); }
+
+    public long get() { return(count.sum()); }
+
+}//end of class Counter
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class Histogram
+//
+// Records durations in nanoseconds. Values below 64 get a bucket each; above
+// that, each power of two is split into SUB_BUCKETS buckets.
+//
+// Reading while values are being recorded gives a result which may be off
+// by the values recorded meanwhile, which is fine for display.
+//
+
+public static class Histogram {
+
+    static final int SUB_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    AtomicLong count = new AtomicLong(0);
+    AtomicLong sum = new AtomicLong(0);
+    AtomicLong max = new AtomicLong(0);
+
+//-----------------------------------------------------------------------------
+// Histogram::record
+//
+// Records one duration of pNanos nanoseconds. Negative values count as 0.
+//
+
+public void record(long pNanos)
+{
+
+    long value = Math.max(0, pNanos);
+
+    buckets.incrementAndGet(getBucket(value));
+    count.incrementAndGet();
+    sum.addAndGet(value);
+
+    long current;
+    while (value > (current = max.get())){
+        if (max.compareAndSet(current, value)) {break;}
+    }
+
+}//end of Histogram::record
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Histogram::getCount
+//
+
+public long getCount()
+{
+
+    return(count.get());
+
+}//end of Histogram::getCount
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Histogram::getMean
+//
+// Returns the mean of the recorded values in nanoseconds, or 0 if there are
+// none.
+//
+
+public double getMean()
+{
+
+    long n = count.get();
+
+    return(n == 0 ? 0 : (double)sum.get() / n);
+
+}//end of Histogram::getMean
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Histogram::getSum
+//
+// Returns the total of the recorded values in nanoseconds.
+//
+
+public long getSum()
+{
+
+    return(sum.get());
+
+}//end of Histogram::getSum
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Histogram::getMax
+//
+
+public long getMax()
+{
+
+    return(max.get());
+
+}//end of Histogram::getMax
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Histogram::getPercentile
+//
+// Returns the value in nanoseconds which pPercentile percent of the recorded
+// values are less than or equal to, to the precision of the buckets. Returns
+// 0 if no values have been recorded.
+//
+
+public long getPercentile(double pPercentile)
+{
+
+    long n = count.get();
+
+    if (n == 0) {return(0);}
+
+    long target = Math.max(1, (long)Math.ceil(pPercentile / 100 * n));
+
+    long seen = 0;
+
+    for (int i = 0; i < BUCKETS; i++){
+        seen += buckets.get(i);
+        if (seen >= target) {return(Math.min(getHighestValue(i), max.get()));}
+    }
+
+    return(max.get());
+
+}//end of Histogram::getPercentile
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Histogram::getBucket
+//
+// Returns the index of the bucket which counts pValue.
+//
+
+static int getBucket(long pValue)
+{
+
+    if (pValue < 2 * SUB_BUCKETS) {return((int)pValue);}
+
+    int shift = 63 - Long.numberOfLeadingZeros(pValue) - SUB_BITS;
+
+    return(shift * SUB_BUCKETS + (int)(pValue >>> shift));
+
+}//end of Histogram::getBucket
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Histogram::getHighestValue
+//
+// Returns the largest value counted by bucket pBucket.
+//
+
+static long getHighestValue(int pBucket)
+{
+
+    if (pBucket < 2 * SUB_BUCKETS) {return(pBucket);}
+
+    int shift = pBucket / SUB_BUCKETS - 1;
+    long sub = pBucket % SUB_BUCKETS + SUB_BUCKETS;
+
+    return(((sub + 1) << shift) - 1);
+
+}//end of Histogram::getHighestValue
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Histogram::toString
+//
+// Returns the count and a summary of the distribution in milliseconds.
+//
+
+@Override
+public String toString()
+{
+
+    return(String.format(
+        "count %d, mean %.2f ms, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms,"
+        + " p99.9 %.2f ms, max %.2f ms",
+        getCount(), getMean() / 1e6, getPercentile(50) / 1e6,
+        getPercentile(90) / 1e6, getPercentile(99) / 1e6,
+        getPercentile(99.9) / 1e6, getMax() / 1e6));
+
+}//end of Histogram::toString
+//-----------------------------------------------------------------------------
+
+}//end of class Histogram
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+
+    //quantiles reported for each histogram in the Prometheus format
+    static final String[] QUANTILES = {"0.5", "0.9", "0.99", "0.999"};
+
+    //name -> Counter, Gauge, or Histogram in the order registered
+    LinkedHashMap<String, Object> metrics = new LinkedHashMap<String, Object>();
+
+//-----------------------------------------------------------------------------
+// Metrics::Metrics (constructor)
+//
+
+public Metrics()
+{
+
+}//end of Metrics::Metrics (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Metrics::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+
+public void init()
+{
+
+}//end of Metrics::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Metrics::counter
+//
+// Returns the counter named pName, creating it if it does not exist.
+//
+
+public synchronized Counter counter(String pName)
+{
+
+    Object metric = metrics.get(pName);
+
+    if (metric instanceof Counter) {return((Counter)metric);}
+
+    Counter counter = new Counter();
+    metrics.put(pName, counter);
+
+    return(counter);
+
+}//end of Metrics::counter
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Metrics::histogram
+//
+// Returns the histogram named pName, creating it if it does not exist.
+//
+
+public synchronized Histogram histogram(String pName)
+{
+
+    Object metric = metrics.get(pName);
+
+    if (metric instanceof Histogram) {return((Histogram)metric);}
+
+    Histogram histogram = new Histogram();
+    metrics.put(pName, histogram);
+
+    return(histogram);
+
+}//end of Metrics::histogram
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Metrics::register
+//
+// Registers gauge pGauge as pName, replacing any metric of that name.
+//
+
+public synchronized void register(String pName, Gauge pGauge)
+{
+
+    metrics.put(pName, pGauge);
+
+}//end of Metrics::register
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Metrics::register
+//
+// Registers histogram pHistogram, which is owned and recorded by another
+// object, as pName, replacing any metric of that name.
+//
+
+public synchronized void register(String pName, Histogram pHistogram)
+{
+
+    metrics.put(pName, pHistogram);
+
+}//end of Metrics::register
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Metrics::getValue
+//
+// Returns the current value of the counter or gauge named pName, or 0 if
+// there is none.
+//
+
+public double getValue(String pName)
+{
+
+    Object metric;
+
+    synchronized(this) {metric = metrics.get(pName);}
+
+    if (metric instanceof Counter) {return(((Counter)metric).get());}
+    if (metric instanceof Gauge) {return(((Gauge)metric).getValue());}
+
+    return(0);
+
+}//end of Metrics::getValue
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Metrics::getSnapshot
+//
+// Returns every metric, one per line as name and value, in the order they
+// were registered.
+//
+
+public String getSnapshot()
+{
+
+    StringBuilder text = new StringBuilder();
+
+    text.append("Metrics at ").append(new Date()).append('\n');
+
+    for (Map.Entry<String, Object> entry : getEntries()){
+
+        Object metric = entry.getValue();
+
+        text.append(entry.getKey()).append(": ");
+
+        if (metric instanceof Counter) {text.append(((Counter)metric).get());}
+        else if (metric instanceof Gauge){
+            text.append(formatValue(((Gauge)metric).getValue()));
+        }
+        else {text.append(metric);}
+
+        text.append('\n');
+
+    }
+
+    return(text.toString());
+
+}//end of Metrics::getSnapshot
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Metrics::getPrometheusText
+//
+// Returns every metric in the Prometheus text exposition format, version
+// 0.0.4. Each name is prefixed with pPrefix and converted to snake case.
+// Counters are suffixed with _total; histograms are written as summaries in
+// seconds with the 50th, 90th, 99th, and 99.9th percentiles.
+//
+
+public String getPrometheusText(String pPrefix)
+{
+
+    StringBuilder text = new StringBuilder();
+
+    for (Map.Entry<String, Object> entry : getEntries()){
+
+        String name = pPrefix + "_" + toSnakeCase(entry.getKey());
+        Object metric = entry.getValue();
+
+        if (metric instanceof Counter){
+            name += "_total";
+            text.append("# TYPE ").append(name).append(" counter\n");
+            text.append(name).append(' ')
+                                .append(((Counter)metric).get()).append('\n');
+        }
+        else if (metric instanceof Gauge){
+            text.append("# TYPE ").append(name).append(" gauge\n");
+            text.append(name).append(' ')
+                .append(formatValue(((Gauge)metric).getValue())).append('\n');
+        }
+        else{
+            Histogram histogram = (Histogram)metric;
+            name += "_seconds";
+            text.append("# TYPE ").append(name).append(" summary\n");
+            for (String quantile : QUANTILES){
+                double seconds = histogram.getPercentile(
+                                      Double.parseDouble(quantile) * 100) / 1e9;
+                text.append(name).append("{quantile=\"").append(quantile)
+                      .append("\"} ").append(formatValue(seconds)).append('\n');
+            }
+            text.append(name).append("_sum ")
+                    .append(formatValue(histogram.getSum() / 1e9)).append('\n');
+            text.append(name).append("_count ")
+                                    .append(histogram.getCount()).append('\n');
+        }
+
+    }
+
+    return(text.toString());
+
+}//end of Metrics::getPrometheusText
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Metrics::getEntries
+//
+// Returns a copy of the registered names and metrics so they can be read
+// without holding the lock.
+//
+
+private synchronized ArrayList<Map.Entry<String, Object>> getEntries()
+{
+
+    return(new ArrayList<Map.Entry<String, Object>>(metrics.entrySet()));
+
+}//end of Metrics::getEntries
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Metrics::toSnakeCase
+//
+// Returns metric name pName with dots replaced by underscores and each
+// capital letter replaced by an underscore and the lower case letter, so
+// "pages.processTime" becomes "pages_process_time".
+//
+
+static String toSnakeCase(String pName)
+{
+
+    StringBuilder name = new StringBuilder(pName.length() + 8);
+
+    for (int i = 0; i < pName.length(); i++){
+        char c = pName.charAt(i);
+        if (Character.isUpperCase(c)){
+            name.append('_').append(Character.toLowerCase(c));
+        }
+        else if (Character.isLetterOrDigit(c)) {name.append(c);}
+        else {name.append('_');}
+    }
+
+    return(name.toString());
+
+}//end of Metrics::toSnakeCase
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Metrics::formatValue
+//
+// Returns pValue as text, without a decimal point if it is a whole number.
+//
+
+static String formatValue(double pValue)
+{
+
+    if (pValue == Math.rint(pValue) && Math.abs(pValue) < 1e15){
+        return(Long.toString((long)pValue));
+    }
+
+    return(Double.toString(pValue));
+
+}//end of Metrics::formatValue
+//-----------------------------------------------------------------------------
+
+}//end of class Metrics
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -28,6 +28,10 @@
 
 package model;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
 //-----------------------------------------------------------------------------
 //-----------------------------------------------------------------------------
 // class Options
@@ -40,6 +44,113 @@ public class Options extends Object{
 
     public static String SOFTWARE_VERSION = "1.0";
 
+    public static final String SETTINGS_FILENAME = "Main Settings.ini";
+    public static final String SETTINGS_FILE_FORMAT = "UTF-8";
+
+    //folders are relative to the program folder unless full paths are given
+
+    public String sourceFolder = "Source Pages";
+    public String fragmentFolder = "Fragments";
+    public String outputFolder = "Output Pages";
+
+    //the dependency graph is saved here between runs
+    public String dependencyFilename = "Dependencies.txt";
+
+    //hashes of the pages in the output folder are saved here between runs
+    public String outputHashFilename = "Output Hashes.txt";
+
+    //if true, whitespace is collapsed and comments removed from each page
+    //as content is inserted
+    public boolean minifyOutput = false;
+
+    //if true, compressed copies of each output page are written beside it
+    //in each of the comma separated formats: gzip, deflate
+    public boolean compressOutput = false;
+    public String compressionFormats = "gzip";
+
+    //pages of at least this many bytes are not read into memory but mapped
+    //a window at a time and written straight to the output folder -- 0 to
+    //read every page into memory
+    public int largePageThreshold = 32 * 1024 * 1024;
+
+    //maximum number of compiled pages and fragments kept in memory and the
+    //maximum number of bytes they may hold
+    public int templateCacheSize = 256;
+    public int templateCacheBudget = 32 * 1024 * 1024;
+
+    //maximum number of bytes of expanded fragments kept in memory
+    public int fragmentCacheBudget = 16 * 1024 * 1024;
+
+    //if true, fragments of at least the threshold size are kept off the heap
+    public boolean fragmentCacheOffHeap = false;
+    public int fragmentCacheOffHeapThreshold = 64 * 1024;
+
+    //number of worker threads for background jobs -- 0 for one per processor
+    public int workerThreads = 0;
+
+    //number of jobs which may wait for a worker before submitters must wait
+    public int jobQueueCapacity = 1000;
+
+    //if true, each job runs on its own virtual thread instead of the worker
+    //pool -- Job Queue Capacity then limits the number of jobs in flight
+    public boolean useVirtualThreads = false;
+
+    //remote source page and the folder where local copies of remote pages
+    //are kept
+    public String remotePageURL = "";
+    public String remoteCacheFolder = "Remote Cache";
+
+    //XML element name -> fragment name for each element of the remote page
+    //to be inserted into pages; read from the Remote Content section as
+    //numbered Remote Element / Remote Fragment pairs
+    public LinkedHashMap<String, String> remoteElements =
+                                          new LinkedHashMap<String, String>();
+
+    //milliseconds allowed to connect to a server and receive a response
+    public int remoteTimeout = 10000;
+
+    //remote XML sources polled on their own schedules, loaded from sections
+    //Feed 1, Feed 2, ... -- the Remote Page URL, if set, is included as a
+    //feed which is only fetched on request
+    public ArrayList<Feed> feeds = new ArrayList<Feed>();
+
+    //maximum number of feed fetches in progress at once
+    public int maxFeedRequests = 4;
+
+    //port for the embedded page server -- 0 to not run the server -- and
+    //the address it listens on; the default only accepts local connections
+    public int httpServerPort = 0;
+    public String httpServerAddress = "127.0.0.1";
+
+    //if true, the page server renders each page from the source folder when
+    //it is first requested instead of serving the output folder, and remote
+    //feed changes do not trigger rebuilds
+    public boolean renderOnDemand = false;
+
+    //number of threads handling page server requests
+    public int httpServerThreads = 4;
+
+    //maximum number of bytes of processed pages kept in memory for serving
+    public int pageStoreBudget = 64 * 1024 * 1024;
+
+    //path at which the page server serves the metrics in the Prometheus text
+    //format -- set to "none" in the settings file to not serve them
+    public String metricsPath = "/metrics";
+
+    //if true, the source and fragment folders and the settings file are
+    //watched and the pages affected by any change are rebuilt as soon as
+    //changes stop arriving for the debounce period in milliseconds -- the
+    //settings themselves are only reloaded when the program is restarted
+    public boolean watchFolders = false;
+    public int watchDebounce = 100;
+
+    //seconds between periodic refreshes of the main window displays
+    public int displayRefreshPeriod = 30;
+
+    //if true, Java Flight Recorder events are emitted for each pipeline
+    //stage -- see PipelineEvents
+    public boolean jfrEvents = false;
+
 //-----------------------------------------------------------------------------
 // Options::Options (constructor)
 //
@@ -51,6 +162,247 @@ public Options()
 }//end of Options::Options (constructor)
 //-----------------------------------------------------------------------------
 
+//-----------------------------------------------------------------------------
+// Options::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+
+public void init()
+{
+
+    loadSettings();
+
+    if (workerThreads < 1){
+        workerThreads = Runtime.getRuntime().availableProcessors();
+    }
+
+}//end of Options::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Options::loadSettings
+//
+// Loads the option settings from the settings file. If the file cannot be
+// read, the default values are retained.
+//
+
+private void loadSettings()
+{
+
+    IniFile settings;
+
+    try {
+        settings = new IniFile(SETTINGS_FILENAME, SETTINGS_FILE_FORMAT);
+    }
+    catch(IOException e){
+        return;
+    }
+
+    String section = "Main Configuration";
+
+    sourceFolder =
+              settings.readString(section, "Source Folder", sourceFolder);
+
+    fragmentFolder =
+              settings.readString(section, "Fragment Folder", fragmentFolder);
+
+    outputFolder =
+              settings.readString(section, "Output Folder", outputFolder);
+
+    dependencyFilename = settings.readString(
+                          section, "Dependency Filename", dependencyFilename);
+
+    outputHashFilename = settings.readString(
+                          section, "Output Hash Filename", outputHashFilename);
+
+    minifyOutput =
+            settings.readBoolean(section, "Minify Output", minifyOutput);
+
+    compressOutput =
+            settings.readBoolean(section, "Compress Output", compressOutput);
+
+    compressionFormats = settings.readString(
+                          section, "Compression Formats", compressionFormats);
+
+    largePageThreshold = settings.readInt(
+                    section, "Large Page Threshold", largePageThreshold);
+
+    templateCacheSize = settings.readInt(
+                          section, "Template Cache Size", templateCacheSize);
+    if (templateCacheSize < 1) {templateCacheSize = 1;}
+
+    templateCacheBudget = settings.readInt(
+                    section, "Template Cache Budget", templateCacheBudget);
+    if (templateCacheBudget < 0) {templateCacheBudget = 0;}
+
+    fragmentCacheBudget = settings.readInt(
+                    section, "Fragment Cache Budget", fragmentCacheBudget);
+
+    fragmentCacheOffHeap = settings.readBoolean(
+                    section, "Fragment Cache Off Heap", fragmentCacheOffHeap);
+
+    fragmentCacheOffHeapThreshold = settings.readInt(section,
+       "Fragment Cache Off Heap Threshold", fragmentCacheOffHeapThreshold);
+
+    displayRefreshPeriod = settings.readInt(
+                  section, "Display Refresh Period", displayRefreshPeriod);
+    if (displayRefreshPeriod < 1) {displayRefreshPeriod = 1;}
+
+    jfrEvents = settings.readBoolean(section, "JFR Events", jfrEvents);
+
+    watchFolders =
+              settings.readBoolean(section, "Watch Folders", watchFolders);
+
+    watchDebounce =
+              settings.readInt(section, "Watch Debounce", watchDebounce);
+    if (watchDebounce < 1) {watchDebounce = 1;}
+
+    workerThreads = settings.readInt(section, "Worker Threads", workerThreads);
+
+    jobQueueCapacity = settings.readInt(
+                          section, "Job Queue Capacity", jobQueueCapacity);
+    if (jobQueueCapacity < 1) {jobQueueCapacity = 1;}
+
+    useVirtualThreads = settings.readBoolean(
+                          section, "Use Virtual Threads", useVirtualThreads);
+
+    remotePageURL =
+              settings.readString(section, "Remote Page URL", remotePageURL);
+
+    remoteCacheFolder = settings.readString(
+                          section, "Remote Cache Folder", remoteCacheFolder);
+
+    remoteTimeout = settings.readInt(section, "Remote Timeout", remoteTimeout);
+    if (remoteTimeout < 1) {remoteTimeout = 1;}
+
+    httpServerPort =
+              settings.readInt(section, "HTTP Server Port", httpServerPort);
+
+    httpServerAddress = settings.readString(
+                          section, "HTTP Server Address", httpServerAddress);
+
+    renderOnDemand =
+            settings.readBoolean(section, "Render On Demand", renderOnDemand);
+
+    httpServerThreads = settings.readInt(
+                          section, "HTTP Server Threads", httpServerThreads);
+
+    pageStoreBudget =
+            settings.readInt(section, "Page Store Budget", pageStoreBudget);
+
+    metricsPath = settings.readString(section, "Metrics Path", metricsPath);
+    if (metricsPath.equalsIgnoreCase("none")) {metricsPath = "";}
+    else if (!metricsPath.startsWith("/")) {metricsPath = "/" + metricsPath;}
+
+    maxFeedRequests =
+            settings.readInt(section, "Max Feed Requests", maxFeedRequests);
+    if (maxFeedRequests < 1) {maxFeedRequests = 1;}
+
+    loadRemoteElements(settings, "Remote Content", remoteElements);
+
+    loadFeeds(settings);
+
+}//end of Options::loadSettings
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Options::loadRemoteElements
+//
+// Loads into pElements the remote page elements to be inserted into pages.
+// Each is given as a numbered pair of entries in pSection:
+//
+//  Remote Element 1=headline
+//  Remote Fragment 1=remote/headline.html
+//
+// The list ends at the first number with no element.
+//
+
+private void loadRemoteElements(IniFile pSettings, String pSection,
+                                        LinkedHashMap<String, String> pElements)
+{
+
+    for (int i = 1; ; i++){
+
+        String element =
+                pSettings.readString(pSection, "Remote Element " + i, "");
+        if (element.isEmpty()) {break;}
+
+        String fragment =
+                pSettings.readString(pSection, "Remote Fragment " + i, "");
+        if (fragment.isEmpty()) {fragment = "remote/" + element + ".html";}
+
+        pElements.put(element, fragment);
+
+    }
+
+}//end of Options::loadRemoteElements
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// Options::loadFeeds
+//
+// Loads the feed registry. Each feed has its own section, numbered from 1:
+//
+//  [Feed 1]
+//  Name=Headlines
+//  URL=http://example.com/headlines.xml
+//  Interval=60
+//  Jitter=5
+//  Timeout=10000
+//  Retries=3
+//  Retry Backoff=5000
+//  Remote Element 1=headline
+//  Remote Fragment 1=remote/headline.html
+//
+// The registry ends at the first number with no URL. A feed with no
+// elements of its own uses those in the Remote Content section. Feeds which
+// map elements to the same fragment each replace it with their own content
+// in turn; the RemoteContentParser makes sure they never do so at once.
+//
+
+private void loadFeeds(IniFile pSettings)
+{
+
+    if (!remotePageURL.isEmpty()){
+        Feed feed = new Feed("Remote Page", remotePageURL);
+        feed.interval = 0;
+        feed.timeout = remoteTimeout;
+        feed.elements.putAll(remoteElements);
+        feeds.add(feed);
+    }
+
+    for (int i = 1; ; i++){
+
+        String section = "Feed " + i;
+
+        String url = pSettings.readString(section, "URL", "");
+        if (url.isEmpty()) {break;}
+
+        Feed feed = new Feed(
+                        pSettings.readString(section, "Name", section), url);
+
+        feed.interval = Math.max(0,
+                    pSettings.readInt(section, "Interval", feed.interval));
+        feed.jitter = Math.max(0,
+                    pSettings.readInt(section, "Jitter", feed.jitter));
+        feed.timeout = Math.max(1,
+                    pSettings.readInt(section, "Timeout", remoteTimeout));
+        feed.retries = Math.max(0,
+                    pSettings.readInt(section, "Retries", feed.retries));
+        feed.retryBackoff = Math.max(1, pSettings.readInt(
+                            section, "Retry Backoff", feed.retryBackoff));
+
+        loadRemoteElements(pSettings, section, feed.elements);
+        if (feed.elements.isEmpty()) {feed.elements.putAll(remoteElements);}
+
+        feeds.add(feed);
+
+    }
+
+}//end of Options::loadFeeds
+//-----------------------------------------------------------------------------
+
 }//end of class Options
 //-----------------------------------------------------------------------------
 //-----------------------------------------------------------------------------
@@ -0,0 +1,197 @@
+/******************************************************************************
+* Title: OutputCompressor.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class compresses processed pages into the formats web servers can
+* send as-is to clients which accept them, so the servers need not compress
+* each page on every request.
+*
+* The formats are those the JDK can produce:
+*
+*   gzip     written to page.html.gz
+*   deflate  written to page.html.zz (zlib format, as HTTP deflate requires)
+*
+* Both are compressed at the highest level since each page is compressed
+* once and then served many times.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class OutputCompressor
+//
+
+public class OutputCompressor extends Object{
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    //every supported format
+    public static final String[] FORMATS = {GZIP, DEFLATE};
+
+    //size of the buffers used when compressing files
+    static final int BUFFER_SIZE = 64 * 1024;
+
+//-----------------------------------------------------------------------------
+// OutputCompressor::OutputCompressor (constructor)
+//
+
+public OutputCompressor()
+{
+
+}//end of OutputCompressor::OutputCompressor (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// OutputCompressor::parseFormats
+//
+// Returns the formats named in comma separated list pList, ignoring any it
+// does not recognize.
+//
+
+public static ArrayList<String> parseFormats(String pList)
+{
+
+    ArrayList<String> formats = new ArrayList<String>();
+
+    for (String format : pList.split(",")){
+        format = format.trim().toLowerCase();
+        if (getExtension(format) != null && !formats.contains(format)){
+            formats.add(format);
+        }
+    }
+
+    return(formats);
+
+}//end of OutputCompressor::parseFormats
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// OutputCompressor::getExtension
+//
+// Returns the extension added to the page's filename for pFormat or null if
+// pFormat is not supported.
+//
+
+public static String getExtension(String pFormat)
+{
+
+    if (GZIP.equals(pFormat)) {return(".gz");}
+    if (DEFLATE.equals(pFormat)) {return(".zz");}
+
+    return(null);
+
+}//end of OutputCompressor::getExtension
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// OutputCompressor::compress
+//
+// Returns pBytes compressed in pFormat.
+//
+
+public static byte[] compress(byte[] pBytes, String pFormat)
+{
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(pBytes.length / 3);
+
+    Deflater deflater = null;
+
+    try{
+
+        DeflaterOutputStream stream;
+
+        if (GZIP.equals(pFormat)){
+            stream = new GZIPOutputStream(out){
+                { def.setLevel(Deflater.BEST_COMPRESSION); } };
+        }
+        else{
+            deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            stream = new DeflaterOutputStream(out, deflater);
+        }
+
+        stream.write(pBytes);
+        stream.close();
+
+    }
+    catch(IOException e){
+        //cannot happen when writing to memory
+        throw new IllegalStateException(e);
+    }
+    finally{
+        //a Deflater passed to the stream is not released when it is closed
+        if (deflater != null) {deflater.end();}
+    }
+
+    return(out.toByteArray());
+
+}//end of OutputCompressor::compress
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// OutputCompressor::compress
+//
+// Writes the contents of pFile compressed in pFormat to pCopy. The file is
+// compressed as it is read, for pages too large to be held in memory.
+//
+
+public static void compress(File pFile, File pCopy, String pFormat)
+                                                            throws IOException
+{
+
+    InputStream in = null;
+    OutputStream out = null;
+    Deflater deflater = null;
+
+    try{
+
+        in = new FileInputStream(pFile);
+        out = new BufferedOutputStream(
+                                new FileOutputStream(pCopy), BUFFER_SIZE);
+
+        if (GZIP.equals(pFormat)){
+            out = new GZIPOutputStream(out, BUFFER_SIZE){
+                { def.setLevel(Deflater.BEST_COMPRESSION); } };
+        }
+        else{
+            deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            out = new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+        }
+
+        byte[] chunk = new byte[BUFFER_SIZE];
+        int count;
+
+        while ((count = in.read(chunk)) != -1) {out.write(chunk, 0, count);}
+
+    }
+    finally{
+        if (in != null) {in.close();}
+        if (out != null) {out.close();}
+        //a Deflater passed to the stream is not released when it is closed
+        if (deflater != null) {deflater.end();}
+    }
+
+}//end of OutputCompressor::compress
+//-----------------------------------------------------------------------------
+
+}//end of class OutputCompressor
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,204 @@
+/******************************************************************************
+* Title: OutputHashes.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class records a hash of the contents of each page written to the
+* output folder so the ContentEngine can tell when a rebuilt page comes out
+* exactly the same as before and skip work which depends only on the page's
+* contents, such as writing its compressed copies.
+*
+* The hashes are saved to a text file between runs, one page per line:
+*
+*   hash <tab> output path
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.io.*;
+import java.util.*;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class OutputHashes
+//
+
+public class OutputHashes extends Object{
+
+    static final String FILE_FORMAT = "UTF-8";
+    static final String SEPARATOR = "\t";
+
+    //output path -> hash of the contents last written to it
+    HashMap<String, String> hashes;
+
+//-----------------------------------------------------------------------------
+// OutputHashes::OutputHashes (constructor)
+//
+
+public OutputHashes()
+{
+
+}//end of OutputHashes::OutputHashes (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// OutputHashes::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+
+public void init()
+{
+
+    hashes = new HashMap<String, String>();
+
+}//end of OutputHashes::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// OutputHashes::get
+//
+// Returns the hash recorded for output file pPath or null if there is none.
+//
+
+public synchronized String get(String pPath)
+{
+
+    return(hashes.get(pPath));
+
+}//end of OutputHashes::get
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// OutputHashes::put
+//
+// Records pHash as the hash of the contents written to output file pPath.
+//
+
+public synchronized void put(String pPath, String pHash)
+{
+
+    hashes.put(pPath, pHash);
+
+}//end of OutputHashes::put
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// OutputHashes::remove
+//
+// Discards the hash recorded for output file pPath.
+//
+
+public synchronized void remove(String pPath)
+{
+
+    hashes.remove(pPath);
+
+}//end of OutputHashes::remove
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// OutputHashes::load
+//
+// Loads the hashes from pFilename, replacing the current contents. If the
+// file does not exist no hashes are recorded, so every page is treated as
+// changed.
+//
+
+public synchronized void load(String pFilename) throws IOException
+{
+
+    init();
+
+    FileInputStream fileInputStream = null;
+    InputStreamReader inputStreamReader = null;
+    BufferedReader in = null;
+
+    try{
+
+        fileInputStream = new FileInputStream(pFilename);
+        inputStreamReader = new InputStreamReader(fileInputStream, FILE_FORMAT);
+        in = new BufferedReader(inputStreamReader);
+
+        String line;
+
+        while ((line = in.readLine()) != null){
+
+            //skip blank lines and comments
+            if (line.length() == 0 || line.startsWith(";")) {continue;}
+
+            String[] fields = line.split(SEPARATOR, 2);
+            if (fields.length < 2) {continue;}
+
+            hashes.put(fields[1], fields[0]);
+
+        }
+
+    }
+    catch (FileNotFoundException e){
+        //no saved hashes yet
+    }
+    finally{
+        if (in != null) {in.close();}
+        if (inputStreamReader != null) {inputStreamReader.close();}
+        if (fileInputStream != null) {fileInputStream.close();}
+    }
+
+}//end of OutputHashes::load
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// OutputHashes::save
+//
+// Saves the hashes to pFilename.
+//
+
+public synchronized void save(String pFilename) throws IOException
+{
+
+    FileOutputStream fileOutputStream = null;
+    OutputStreamWriter outputStreamWriter = null;
+    BufferedWriter out = null;
+
+    try{
+
+        fileOutputStream = new FileOutputStream(pFilename);
+        outputStreamWriter =
+                         new OutputStreamWriter(fileOutputStream, FILE_FORMAT);
+        out = new BufferedWriter(outputStreamWriter);
+
+        out.write(";Output page hashes -- generated file, do not edit.");
+        out.newLine();
+
+        for (Map.Entry<String, String> entry : hashes.entrySet()){
+            out.write(entry.getValue() + SEPARATOR + entry.getKey());
+            out.newLine();
+        }
+
+        //Note! You MUST flush to make sure everything is written.
+
+        out.flush();
+
+    }
+    finally{
+        if (out != null) {out.close();}
+        if (outputStreamWriter != null) {outputStreamWriter.close();}
+        if (fileOutputStream != null) {fileOutputStream.close();}
+    }
+
+}//end of OutputHashes::save
+//-----------------------------------------------------------------------------
+
+}//end of class OutputHashes
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
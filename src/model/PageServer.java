@@ -0,0 +1,585 @@
+/******************************************************************************
+* Title: PageServer.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class is a small HTTP server which serves the processed pages from
+* the PageStore so they can be previewed or served without a separate web
+* server.
+*
+* Only GET and HEAD are supported. Each response carries a strong ETag and a
+* Last-Modified time; a request whose If-None-Match or If-Modified-Since
+* header shows the client already has the page is answered with 304 Not
+* Modified and no body. Clients which accept gzip are sent the compressed
+* copy made when the page was stored, so no compression is done while
+* serving.
+*
+* Responses are marked no-cache so browsers always revalidate, which costs
+* a 304 when nothing has changed and shows a rebuilt page immediately.
+*
+* Pages too large to be held in memory are streamed from their file with
+* their length sent up front, so serving one never needs more than a copy
+* buffer of memory.
+*
+* If given a Metrics registry, the server also answers requests for the
+* metrics path with all metrics in the Prometheus text format so they can
+* be scraped.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class PageServer
+//
+
+public class PageServer extends Object{
+
+    PageStore pageStore;
+    String address;
+    int port;
+    int threads;
+
+    HttpServer server;
+    ExecutorService executor;
+
+    AtomicLong requests = new AtomicLong(0);
+    AtomicLong notModified = new AtomicLong(0);
+    AtomicLong compressed = new AtomicLong(0);
+    AtomicLong notFound = new AtomicLong(0);
+    AtomicLong bytesSent = new AtomicLong(0);
+
+    Metrics metrics;
+    String metricsPath;
+
+    static final String METRICS_PREFIX = "webcontenthandler";
+    static final String METRICS_CONTENT_TYPE =
+                                   "text/plain; version=0.0.4; charset=utf-8";
+
+//-----------------------------------------------------------------------------
+// PageServer::PageServer (constructor)
+//
+// The server listens on pAddress at pPort and handles requests on pThreads
+// threads.
+//
+
+public PageServer(PageStore pPageStore, String pAddress, int pPort,
+                                                                int pThreads)
+{
+
+    pageStore = pPageStore; address = pAddress; port = pPort;
+    threads = pThreads;
+
+}//end of PageServer::PageServer (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+// Opens the port and starts serving. Throws IOException if the port cannot
+// be opened.
+//
+
+public void init() throws IOException
+{
+
+    server = HttpServer.create(new InetSocketAddress(address, port), 0);
+
+    final AtomicInteger threadCount = new AtomicInteger(0);
+
+    executor = Executors.newFixedThreadPool(Math.max(1, threads),
+        new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable pRunnable) {
+                Thread thread = new Thread(pRunnable,
+                                    "HTTP " + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return(thread);
+            }});
+
+    server.setExecutor(executor);
+
+    server.createContext("/",
+        new HttpHandler() {
+            @Override
+            public void handle(HttpExchange pExchange) throws IOException {
+                try{
+                    handleRequest(pExchange);
+                }
+                finally{
+                    pExchange.close();
+                }
+            }});
+
+    if (metrics != null){
+        server.createContext(metricsPath,
+            new HttpHandler() {
+                @Override
+                public void handle(HttpExchange pExchange) throws IOException {
+                    try{
+                        //the context also matches longer paths, which are
+                        //treated as pages
+                        if (pExchange.getRequestURI().getPath()
+                                                    .equals(metricsPath)){
+                            handleMetricsRequest(pExchange);
+                        }
+                        else {handleRequest(pExchange);}
+                    }
+                    finally{
+                        pExchange.close();
+                    }
+                }});
+    }
+
+    server.start();
+
+}//end of PageServer::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::setMetrics
+//
+// Serves the metrics in pMetrics at pPath, which must begin with "/". Must
+// be called before init.
+//
+
+public void setMetrics(Metrics pMetrics, String pPath)
+{
+
+    metrics = pMetrics; metricsPath = pPath;
+
+}//end of PageServer::setMetrics
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::getURL
+//
+// Returns the URL of the root of the server.
+//
+
+public String getURL()
+{
+
+    return("http://" + address + ":" + server.getAddress().getPort() + "/");
+
+}//end of PageServer::getURL
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::handleRequest
+//
+// Answers one request.
+//
+
+private void handleRequest(HttpExchange pExchange) throws IOException
+{
+
+    requests.incrementAndGet();
+
+    String method = pExchange.getRequestMethod();
+    boolean head = "HEAD".equals(method);
+
+    if (!head && !"GET".equals(method)){
+        pExchange.getResponseHeaders().set("Allow", "GET, HEAD");
+        sendText(pExchange, 405, "Method not allowed", head);
+        return;
+    }
+
+    String path = getPagePath(pExchange.getRequestURI().getPath());
+
+    PageStore.Page page = path == null ? null : pageStore.get(path);
+
+    if (page == null){
+        notFound.incrementAndGet();
+        sendText(pExchange, 404, "Not found", head);
+        return;
+    }
+
+    sendPage(pExchange, page, head);
+
+}//end of PageServer::handleRequest
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::sendPage
+//
+// Sends pPage, or 304 if the client already has it. If pHead is true, only
+// the headers are sent.
+//
+
+private void sendPage(HttpExchange pExchange, PageStore.Page pPage,
+                                            boolean pHead) throws IOException
+{
+
+    Headers request = pExchange.getRequestHeaders();
+
+    boolean gzip = pPage.gzip != null
+                        && acceptsGzip(request.getFirst("Accept-Encoding"));
+
+    String eTag = gzip ? pPage.gzipETag : pPage.eTag;
+    byte[] body = gzip ? pPage.gzip : pPage.bytes;
+
+    Headers response = pExchange.getResponseHeaders();
+    response.set("Content-Type", pPage.contentType);
+    response.set("ETag", eTag);
+    response.set("Last-Modified", formatDate(pPage.lastModified));
+    response.set("Cache-Control", "no-cache");
+    if (pPage.gzip != null) {response.set("Vary", "Accept-Encoding");}
+
+    if (isNotModified(request, eTag, pPage.lastModified)){
+        notModified.incrementAndGet();
+        pExchange.sendResponseHeaders(304, -1);
+        return;
+    }
+
+    if (gzip){
+        response.set("Content-Encoding", "gzip");
+        compressed.incrementAndGet();
+    }
+
+    if (pHead){
+        long length = body != null ? body.length : pPage.file.length();
+        sendHeaders(pExchange, 200, length, true);
+        return;
+    }
+
+    if (body == null){
+        sendFile(pExchange, pPage.file);
+        return;
+    }
+
+    sendHeaders(pExchange, 200, body.length, false);
+    pExchange.getResponseBody().write(body);
+    bytesSent.addAndGet(body.length);
+
+}//end of PageServer::sendPage
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::sendFile
+//
+// Sends the contents of pFile as the body of a 200 response, copying it from
+// disk a buffer at a time. The length is taken from the open file so it
+// matches what is sent even if the file is replaced meanwhile.
+//
+
+private void sendFile(HttpExchange pExchange, File pFile) throws IOException
+{
+
+    FileInputStream in = new FileInputStream(pFile);
+
+    try{
+
+        long length = in.getChannel().size();
+
+        sendHeaders(pExchange, 200, length, false);
+
+        in.transferTo(pExchange.getResponseBody());
+
+        bytesSent.addAndGet(length);
+
+    }
+    finally{
+        in.close();
+    }
+
+}//end of PageServer::sendFile
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::handleMetricsRequest
+//
+// Answers a request for the metrics.
+//
+
+private void handleMetricsRequest(HttpExchange pExchange) throws IOException
+{
+
+    String method = pExchange.getRequestMethod();
+    boolean head = "HEAD".equals(method);
+
+    if (!head && !"GET".equals(method)){
+        pExchange.getResponseHeaders().set("Allow", "GET, HEAD");
+        sendText(pExchange, 405, "Method not allowed", head);
+        return;
+    }
+
+    byte[] body = metrics.getPrometheusText(METRICS_PREFIX).getBytes("UTF-8");
+
+    Headers response = pExchange.getResponseHeaders();
+    response.set("Content-Type", METRICS_CONTENT_TYPE);
+    response.set("Cache-Control", "no-store");
+
+    sendHeaders(pExchange, 200, body.length, head);
+
+    if (!head) {pExchange.getResponseBody().write(body);}
+
+}//end of PageServer::handleMetricsRequest
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::getPagePath
+//
+// Returns the path in the output folder for request path pURIPath or null if
+// the path would leave the output folder. A path naming a folder is given
+// the folder's index.html.
+//
+
+static String getPagePath(String pURIPath)
+{
+
+    if (pURIPath == null || !pURIPath.startsWith("/")) {return(null);}
+
+    String path = pURIPath.substring(1);
+
+    if (path.isEmpty() || path.endsWith("/")) {path += "index.html";}
+
+    if (path.indexOf('\\') != -1 || path.indexOf(':') != -1
+                                            || path.indexOf('\0') != -1){
+        return(null);
+    }
+
+    for (String segment : path.split("/")){
+        if (segment.isEmpty() || segment.equals(".")
+                                            || segment.equals("..")){
+            return(null);
+        }
+    }
+
+    return(path);
+
+}//end of PageServer::getPagePath
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::isNotModified
+//
+// Returns true if the conditional headers of pRequest show the client
+// already has the variant with pETag. If-None-Match takes precedence over
+// If-Modified-Since as required by HTTP.
+//
+
+static boolean isNotModified(Headers pRequest, String pETag,
+                                                            long pLastModified)
+{
+
+    String ifNoneMatch = pRequest.getFirst("If-None-Match");
+
+    if (ifNoneMatch != null){
+        for (String tag : ifNoneMatch.split(",")){
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {tag = tag.substring(2);}
+            if (tag.equals("*") || tag.equals(pETag)) {return(true);}
+        }
+        return(false);
+    }
+
+    String ifModifiedSince = pRequest.getFirst("If-Modified-Since");
+
+    if (ifModifiedSince == null) {return(false);}
+
+    try{
+        long since = ZonedDateTime.parse(ifModifiedSince,
+                    DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+        return(pLastModified / 1000 <= since);
+    }
+    catch(DateTimeParseException e){
+        return(false);
+    }
+
+}//end of PageServer::isNotModified
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::acceptsGzip
+//
+// Returns true if Accept-Encoding header pValue allows gzip.
+//
+
+static boolean acceptsGzip(String pValue)
+{
+
+    if (pValue == null) {return(false);}
+
+    for (String coding : pValue.split(",")){
+
+        String[] parts = coding.trim().split(";");
+
+        if (!parts[0].trim().equalsIgnoreCase("gzip")) {continue;}
+
+        //gzip;q=0 means the client refuses it
+        for (int i = 1; i < parts.length; i++){
+            String param = parts[i].trim().replace(" ", "");
+            if (param.matches("q=0(\\.0*)?")) {return(false);}
+        }
+
+        return(true);
+
+    }
+
+    return(false);
+
+}//end of PageServer::acceptsGzip
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::formatDate
+//
+// Returns pTime in milliseconds formatted as an HTTP date.
+//
+
+static String formatDate(long pTime)
+{
+
+    return(DateTimeFormatter.RFC_1123_DATE_TIME.format(
+              Instant.ofEpochMilli(pTime).atZone(ZoneOffset.UTC)));
+
+}//end of PageServer::formatDate
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::sendText
+//
+// Sends a plain text response with status pStatus.
+//
+
+private static void sendText(HttpExchange pExchange, int pStatus,
+                                        String pText, boolean pHead)
+                                                            throws IOException
+{
+
+    byte[] body = pText.getBytes("UTF-8");
+
+    pExchange.getResponseHeaders().set(
+                                  "Content-Type", "text/plain; charset=UTF-8");
+
+    sendHeaders(pExchange, pStatus, body.length, pHead);
+
+    if (!pHead) {pExchange.getResponseBody().write(body);}
+
+}//end of PageServer::sendText
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::sendHeaders
+//
+// Sends the response headers with status pStatus for a body of pLength
+// bytes, which the caller then writes unless pHead is true. A response to a
+// HEAD request has no body but still reports pLength as its Content-Length.
+//
+// The JDK's server drops a length passed to sendResponseHeaders for a HEAD
+// request, logging a warning, so the header is set here instead. It takes a
+// length of 0 to mean a chunked body, so an empty body is passed as -1.
+//
+
+private static void sendHeaders(HttpExchange pExchange, int pStatus,
+                                        long pLength, boolean pHead)
+                                                            throws IOException
+{
+
+    if (pHead){
+        pExchange.getResponseHeaders().set(
+                                    "Content-Length", Long.toString(pLength));
+        pExchange.sendResponseHeaders(pStatus, -1);
+        return;
+    }
+
+    pExchange.sendResponseHeaders(pStatus, pLength > 0 ? pLength : -1);
+
+}//end of PageServer::sendHeaders
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::getStatistics
+//
+// Returns a one line description of the request counts.
+//
+
+public String getStatistics()
+{
+
+    return("Page server: " + requests.get() + " requests, "
+                + notModified.get() + " not modified, " + compressed.get()
+                + " compressed, " + notFound.get() + " not found");
+
+}//end of PageServer::getStatistics
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::getRequestCount
+//
+
+public long getRequestCount()
+{
+
+    return(requests.get());
+
+}//end of PageServer::getRequestCount
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::getNotModifiedCount
+//
+
+public long getNotModifiedCount()
+{
+
+    return(notModified.get());
+
+}//end of PageServer::getNotModifiedCount
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::getBytesSent
+//
+// Returns the total size of the page bodies sent, compressed or not.
+//
+
+public long getBytesSent()
+{
+
+    return(bytesSent.get());
+
+}//end of PageServer::getBytesSent
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageServer::shutDown
+//
+// Stops the server immediately.
+//
+
+public void shutDown()
+{
+
+    server.stop(0);
+    executor.shutdown();
+
+}//end of PageServer::shutDown
+//-----------------------------------------------------------------------------
+
+}//end of class PageServer
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,764 @@
+/******************************************************************************
+* Title: PageStore.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class keeps processed pages in memory, ready to be served by the
+* PageServer.
+*
+* Each page is stored with everything needed to answer a request without
+* further work: its bytes, a gzip compressed copy if compressing makes it
+* smaller, its content type, and a strong ETag computed from its contents.
+*
+* The ContentEngine adds each page as it is written, so rebuilt pages are
+* served from memory immediately. A page which is not in the store is loaded
+* from the output folder on first request. Each lookup checks the output
+* file's modification time so a page changed on disk by other means is
+* reloaded.
+*
+* Like the FragmentCache, the store is limited by a byte budget and discards
+* the least recently used pages when it is exceeded.
+*
+* Pages at least as large as the Large Page Threshold are never read into
+* memory or stored. Such a page is returned holding only the file it is in,
+* which the PageServer streams from disk to the client; it is not served
+* compressed. When rendering on demand, such a page is rendered to a
+* temporary file which is kept, like a stored page, until any file used to
+* build it changes; until then requests are answered from that render,
+* including the conditional requests which need only its ETag. The file of a
+* replaced render is deleted; a request still sending it keeps reading the
+* open file on systems which allow that.
+*
+* If a ContentEngine is set with setRenderEngine, pages are rendered on
+* demand instead: the first request for a page renders it from the source
+* folder in memory, without writing to the output folder, and later requests
+* are served from the store. Each page produced by the engine records every
+* file used to build it, and is rendered again on the next request after any
+* of them changes, so only the pages actually requested ever cost any work.
+* Simultaneous requests for the same page share a single render.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.io.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class PageStore
+//
+
+public class PageStore extends Object{
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class Page
+//
+// Holds one page ready to be served. The contents are never changed after
+// the page is created, so it may be used by any number of threads.
+//
+// A page too large to be held in memory has no bytes; it is served from
+// file instead and is never stored in memory.
+//
+
+public static class Page {
+
+    public byte[] bytes;
+
+    //the file holding a page too large to be held in memory, otherwise null
+    public File file;
+
+    //gzip compressed copy of bytes or null if compression does not help
+    public byte[] gzip;
+
+    public String contentType;
+
+    //strong ETags for the plain and compressed variants
+    public String eTag;
+    public String gzipETag;
+
+    //modification time of the file in the output folder or, for a page
+    //built by the ContentEngine, of the newest file used to build it
+    public long lastModified;
+
+    //every file used to build the page or null if it was loaded from the
+    //output folder
+    ArrayList<FragmentCache.Dependency> dependencies;
+
+    int size(){ return(bytes.length + (gzip != null ? gzip.length : 0)); }
+
+}//end of class Page
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+
+    //files smaller than this are not worth compressing
+    static final int MIN_COMPRESS_SIZE = 256;
+
+    String outputFolder;
+    long budget;
+    long largePageThreshold;
+
+    long totalBytes = 0;
+
+    //relative path -> page, in least recently used order
+    LinkedHashMap<String, Page> pages =
+                            new LinkedHashMap<String, Page>(64, 0.75f, true);
+
+    //renders pages on demand if not null
+    volatile ContentEngine renderEngine;
+
+    //relative path -> last render of a page too large to be held in memory
+    HashMap<String, Page> largeRenders = new HashMap<String, Page>();
+
+    //relative path -> render of that page in progress
+    ConcurrentHashMap<String, CompletableFuture<Page>> rendering =
+                    new ConcurrentHashMap<String, CompletableFuture<Page>>();
+
+    long hits = 0, loads = 0, renders = 0, streamed = 0, evictions = 0;
+
+//-----------------------------------------------------------------------------
+// PageStore::PageStore (constructor)
+//
+// pBudget is the maximum number of bytes of pages, including compressed
+// copies, kept in memory. Pages of at least pLargePageThreshold bytes are
+// served from file rather than memory; 0 to keep every page in memory.
+//
+
+public PageStore(String pOutputFolder, long pBudget,
+                                                    long pLargePageThreshold)
+{
+
+    outputFolder = pOutputFolder; budget = pBudget;
+    largePageThreshold = pLargePageThreshold;
+
+}//end of PageStore::PageStore (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+
+public void init()
+{
+
+}//end of PageStore::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::setRenderEngine
+//
+// Sets the engine used to render pages on demand, or null to serve only the
+// pages in the output folder.
+//
+
+public void setRenderEngine(ContentEngine pEngine)
+{
+
+    renderEngine = pEngine;
+
+}//end of PageStore::setRenderEngine
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::get
+//
+// Returns the page at pPath, relative to the output folder and separated by
+// forward slashes. If the page is not in memory or is out of date, it is
+// rendered from the source folder when rendering on demand and otherwise
+// loaded from the output folder. Returns null if there is no such page.
+//
+// A large page is returned as a page to be served from file and is not
+// stored in memory.
+//
+// pPath must already have been checked to not leave the output folder.
+//
+
+public Page get(String pPath) throws IOException
+{
+
+    File file = new File(outputFolder, pPath);
+
+    Page page;
+
+    synchronized(this) {page = pages.get(pPath);}
+
+    if (page != null && isCurrent(page, file)){
+        synchronized(this) {hits++;}
+        return(page);
+    }
+
+    ContentEngine engine = renderEngine;
+
+    if (engine != null && ContentEngine.isPage(pPath)){
+        File source = engine.getSourceFile(pPath);
+        if (source.isFile()) {return(render(engine, pPath, source));}
+    }
+
+    long lastModified = file.lastModified();
+
+    if (!file.isFile()) {return(null);}
+
+    if (isLarge(file.length())){
+        synchronized(this){
+            streamed++;
+            discard(pPath);
+        }
+        return(createFilePage(pPath, file, lastModified));
+    }
+
+    page =
+          createPage(pPath, TemplateCache.readBytes(file), lastModified, null);
+
+    synchronized(this){
+        loads++;
+        store(pPath, page);
+    }
+
+    return(page);
+
+}//end of PageStore::get
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::render
+//
+// Renders pSource with pEngine, stores the result under pPath, and returns
+// it. If the page is already being rendered on another thread, waits for
+// that render and returns its result instead.
+//
+// A page too large to be held in memory is returned from its last render
+// if none of the files used to build it have changed.
+//
+
+private Page render(ContentEngine pEngine, String pPath, File pSource)
+                                                            throws IOException
+{
+
+    Page last;
+
+    synchronized(this) {last = largeRenders.get(pPath);}
+
+    if (last != null && isCurrent(last, null)){
+        synchronized(this){
+            hits++;
+            streamed++;
+        }
+        return(last);
+    }
+
+    CompletableFuture<Page> shared = new CompletableFuture<Page>();
+
+    CompletableFuture<Page> existing = rendering.putIfAbsent(pPath, shared);
+
+    if (existing != null){
+        try{
+            return(existing.get());
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for " + pPath);
+        }
+        catch(ExecutionException e){
+            throw new IOException("Error rendering " + pPath + ": "
+                                                + e.getCause().getMessage());
+        }
+    }
+
+    try{
+
+        Page page;
+
+        if (pEngine.isLargePage(pSource)){
+            page = renderLargePage(pEngine, pPath, pSource);
+        }
+        else{
+
+            ExpansionParameters params = new ExpansionParameters();
+
+            byte[] bytes = pEngine.renderPage(pSource, params);
+
+            page = createPage(pPath, bytes, null, params.dependencies);
+
+            synchronized(this){
+                renders++;
+                store(pPath, page);
+            }
+
+        }
+
+        shared.complete(page);
+
+        return(page);
+
+    }
+    catch(IOException | RuntimeException e){
+        shared.completeExceptionally(e);
+        throw e;
+    }
+    finally{
+        rendering.remove(pPath, shared);
+    }
+
+}//end of PageStore::render
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::renderLargePage
+//
+// Renders pSource, which is too large to be held in memory, with pEngine to
+// a temporary file and returns it as a page to be served from that file.
+// The render replaces the last one for pPath, whose file is deleted; the
+// page is not stored in memory.
+//
+
+private Page renderLargePage(ContentEngine pEngine, String pPath,
+                                            File pSource) throws IOException
+{
+
+    File temp = File.createTempFile("render", ".tmp");
+
+    boolean rendered = false;
+
+    try{
+
+        ExpansionParameters params = new ExpansionParameters();
+
+        MessageDigest digest = createDigest();
+
+        OutputStream out = new DigestOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temp), MappedTemplate.COPY_SIZE), digest);
+
+        try{
+            pEngine.renderLargePage(pSource, out, params);
+        }
+        finally{
+            out.close();
+        }
+
+        long lastModified = 0;
+
+        for (FragmentCache.Dependency dependency : params.dependencies){
+            lastModified = Math.max(lastModified, dependency.lastModified);
+        }
+
+        Page page = new Page();
+
+        page.file = temp;
+        page.lastModified = lastModified;
+        page.contentType = getContentType(pPath);
+        page.eTag = "\"" + toHash(digest.digest()) + "\"";
+        page.dependencies = params.dependencies;
+
+        synchronized(this){
+            renders++;
+            streamed++;
+            discard(pPath);
+            discardLargeRender(pPath);
+            largeRenders.put(pPath, page);
+        }
+
+        temp.deleteOnExit();
+
+        rendered = true;
+
+        return(page);
+
+    }
+    finally{
+        if (!rendered) {temp.delete();}
+    }
+
+}//end of PageStore::renderLargePage
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::put
+//
+// Stores pBytes as the contents of pFile, which must be in the output folder
+// and must already have been written. pDependencies lists every file used
+// to build the page. pGzip is the page already compressed in gzip format or
+// null to compress it on the calling thread so requests never wait for it.
+//
+
+void put(File pFile, byte[] pBytes, byte[] pGzip,
+                            ArrayList<FragmentCache.Dependency> pDependencies)
+{
+
+    String path = getPath(pFile);
+
+    if (path == null) {return;}
+
+    Page page = createPage(path, pBytes, pGzip, pDependencies);
+
+    synchronized(this) {store(path, page);}
+
+}//end of PageStore::put
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::isCurrent
+//
+// Returns true if none of the files used to build pPage have changed. For a
+// page loaded from the output folder, that is pFile.
+//
+
+static boolean isCurrent(Page pPage, File pFile)
+{
+
+    if (pPage.dependencies == null){
+        return(pPage.lastModified == pFile.lastModified());
+    }
+
+    for (FragmentCache.Dependency dependency : pPage.dependencies){
+        long modified = new File(dependency.path).lastModified();
+        if (modified != dependency.lastModified) {return(false);}
+    }
+
+    return(true);
+
+}//end of PageStore::isCurrent
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::remove
+//
+// Discards the page stored for pFile, if any, and any render of it.
+//
+
+public synchronized void remove(File pFile)
+{
+
+    String path = getPath(pFile);
+
+    if (path != null){
+        discard(path);
+        discardLargeRender(path);
+    }
+
+}//end of PageStore::remove
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::discard
+//
+// Discards the page stored under pPath, if any. The caller must hold the
+// lock.
+//
+
+private void discard(String pPath)
+{
+
+    Page page = pages.remove(pPath);
+
+    if (page != null) {totalBytes -= page.size();}
+
+}//end of PageStore::discard
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::discardLargeRender
+//
+// Discards the last render of the large page at pPath, if any, and deletes
+// its file. The caller must hold the lock.
+//
+
+private void discardLargeRender(String pPath)
+{
+
+    Page page = largeRenders.remove(pPath);
+
+    if (page != null) {page.file.delete();}
+
+}//end of PageStore::discardLargeRender
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::isLarge
+//
+// Returns true if a page of pSize bytes is too large to be held in memory.
+//
+
+private boolean isLarge(long pSize)
+{
+
+    return(largePageThreshold > 0 && pSize >= largePageThreshold);
+
+}//end of PageStore::isLarge
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::store
+//
+// Adds pPage under pPath, replacing any previous page, and discards the
+// least recently used pages until the store fits its budget. A page larger
+// than the whole budget is not kept. The caller must hold the lock.
+//
+
+private void store(String pPath, Page pPage)
+{
+
+    Page old = pages.remove(pPath);
+    if (old != null) {totalBytes -= old.size();}
+
+    if (pPage.size() > budget) {return;}
+
+    pages.put(pPath, pPage);
+    totalBytes += pPage.size();
+
+    Iterator<Page> i = pages.values().iterator();
+
+    while (totalBytes > budget && i.hasNext()){
+        totalBytes -= i.next().size();
+        i.remove();
+        evictions++;
+    }
+
+}//end of PageStore::store
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::getPath
+//
+// Returns the path of pFile relative to the output folder, separated by
+// forward slashes, or null if pFile is not in the output folder.
+//
+
+String getPath(File pFile)
+{
+
+    String folder = new File(outputFolder).getAbsolutePath() + File.separator;
+    String path = pFile.getAbsolutePath();
+
+    if (!path.startsWith(folder)) {return(null);}
+
+    return(path.substring(folder.length()).replace(File.separatorChar, '/'));
+
+}//end of PageStore::getPath
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::createPage
+//
+// Returns a Page holding pBytes with its compressed copy and ETags. pGzip is
+// pBytes already compressed in gzip format or null to compress it here.
+//
+
+static Page createPage(String pPath, byte[] pBytes, long pLastModified,
+                                                                byte[] pGzip)
+{
+
+    Page page = new Page();
+
+    page.bytes = pBytes;
+    page.lastModified = pLastModified;
+    page.contentType = getContentType(pPath);
+
+    String hash = hash(pBytes);
+    page.eTag = "\"" + hash + "\"";
+    page.gzipETag = "\"" + hash + "-gz\"";
+
+    if (pBytes.length >= MIN_COMPRESS_SIZE
+                                    && isCompressible(page.contentType)){
+        byte[] gzip = pGzip != null ? pGzip :
+                    OutputCompressor.compress(pBytes, OutputCompressor.GZIP);
+        if (gzip.length < pBytes.length) {page.gzip = gzip;}
+    }
+
+    return(page);
+
+}//end of PageStore::createPage
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::createPage
+//
+// Returns a Page holding pBytes built from the files in pDependencies. Its
+// modification time is that of the newest of those files. pGzip is pBytes
+// already compressed in gzip format or null.
+//
+
+static Page createPage(String pPath, byte[] pBytes, byte[] pGzip,
+                            ArrayList<FragmentCache.Dependency> pDependencies)
+{
+
+    long lastModified = 0;
+
+    for (FragmentCache.Dependency dependency : pDependencies){
+        lastModified = Math.max(lastModified, dependency.lastModified);
+    }
+
+    Page page = createPage(pPath, pBytes, lastModified, pGzip);
+
+    page.dependencies = pDependencies;
+
+    return(page);
+
+}//end of PageStore::createPage
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::createFilePage
+//
+// Returns a Page to be served from pFile, which is in the output folder and
+// too large to be held in memory. Since hashing the file would mean reading
+// all of it for every request, its ETag is made from its modification time
+// and length instead; the ContentEngine replaces an output file whole, so
+// any change alters the modification time.
+//
+
+static Page createFilePage(String pPath, File pFile, long pLastModified)
+{
+
+    Page page = new Page();
+
+    page.file = pFile;
+    page.lastModified = pLastModified;
+    page.contentType = getContentType(pPath);
+    page.eTag = "\"" + Long.toHexString(pLastModified) + "-"
+                                    + Long.toHexString(pFile.length()) + "\"";
+
+    return(page);
+
+}//end of PageStore::createFilePage
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::hash
+//
+// Returns the first 16 bytes of the SHA-256 hash of pBytes in hex.
+//
+
+static String hash(byte[] pBytes)
+{
+
+    return(toHash(createDigest().digest(pBytes)));
+
+}//end of PageStore::hash
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::createDigest
+//
+// Returns a new SHA-256 digest, for hashing content too large to be held in
+// memory. The result is converted with toHash.
+//
+
+static MessageDigest createDigest()
+{
+
+    try{
+        return(MessageDigest.getInstance("SHA-256"));
+    }
+    catch(NoSuchAlgorithmException e){
+        //every Java platform is required to support SHA-256
+        throw new IllegalStateException(e);
+    }
+
+}//end of PageStore::createDigest
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::toHash
+//
+// Returns the first 16 bytes of SHA-256 digest pDigest in hex.
+//
+
+static String toHash(byte[] pDigest)
+{
+
+    StringBuilder hex = new StringBuilder(32);
+
+    for (int i = 0; i < 16; i++){
+        hex.append(String.format("%02x", pDigest[i] & 0xff));
+    }
+
+    return(hex.toString());
+
+}//end of PageStore::toHash
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::getContentType
+//
+// Returns the MIME type for pPath based on its extension.
+//
+
+static String getContentType(String pPath)
+{
+
+    String name = pPath.toLowerCase();
+
+    if (ContentEngine.isPage(name)) {return("text/html; charset=UTF-8");}
+    if (name.endsWith(".css")) {return("text/css; charset=UTF-8");}
+    if (name.endsWith(".js")) {return("text/javascript; charset=UTF-8");}
+    if (name.endsWith(".xml")) {return("application/xml");}
+    if (name.endsWith(".json")) {return("application/json");}
+    if (name.endsWith(".txt")) {return("text/plain; charset=UTF-8");}
+    if (name.endsWith(".svg")) {return("image/svg+xml");}
+    if (name.endsWith(".png")) {return("image/png");}
+    if (name.endsWith(".jpg") || name.endsWith(".jpeg")){
+        return("image/jpeg");
+    }
+    if (name.endsWith(".gif")) {return("image/gif");}
+    if (name.endsWith(".ico")) {return("image/x-icon");}
+
+    return("application/octet-stream");
+
+}//end of PageStore::getContentType
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::isCompressible
+//
+// Returns true if content of type pContentType benefits from compression.
+//
+
+static boolean isCompressible(String pContentType)
+{
+
+    return(pContentType.startsWith("text/")
+                || pContentType.startsWith("application/xml")
+                || pContentType.startsWith("application/json")
+                || pContentType.startsWith("image/svg"));
+
+}//end of PageStore::isCompressible
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PageStore::getStatistics
+//
+// Returns a one line description of the store's size and use.
+//
+
+public synchronized String getStatistics()
+{
+
+    return("Page store: " + pages.size() + " pages, " + totalBytes + " of "
+                + budget + " bytes, " + hits + " hits, " + loads + " loads, "
+                + renders + " renders, " + streamed + " streamed, "
+                + evictions + " evictions");
+
+}//end of PageStore::getStatistics
+//-----------------------------------------------------------------------------
+
+}//end of class PageStore
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
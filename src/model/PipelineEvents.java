@@ -0,0 +1,196 @@
+/******************************************************************************
+* Title: PipelineEvents.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class holds the Java Flight Recorder events emitted by the stages of
+* the content pipeline, so a slow rebuild can be profiled with the standard
+* JFR tools.
+*
+* The events are only created when enabled by the "JFR Events" setting in
+* the settings file; otherwise each stage skips them after checking a single
+* flag. When enabled, they are recorded by any flight recording which
+* includes them, for example one started with:
+*
+*   java -XX:StartFlightRecording=filename=rebuild.jfr -jar ...
+*
+* and can be viewed with "jfr print --categories WebContentHandler" or JDK
+* Mission Control. Each event has a duration; the sizes are in bytes.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import jdk.jfr.*;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class PipelineEvents
+//
+
+public class PipelineEvents extends Object{
+
+    static final String CATEGORY = "WebContentHandler";
+
+    //true if events are to be created -- set once at startup
+    static volatile boolean enabled = false;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class PageProcessed
+//
+
+@Name("webcontenthandler.PageProcessed")
+@Label("Page Processed")
+@Description("A source page expanded and written to the output folder.")
+@Category({CATEGORY, "Pipeline"})
+static class PageProcessed extends Event {
+
+    @Label("Page")
+    String page;
+
+    @Label("Size")
+    @DataAmount
+    long size;
+
+}//end of class PageProcessed
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class TemplateCompiled
+//
+
+@Name("webcontenthandler.TemplateCompiled")
+@Label("Template Compiled")
+@Description("A page or fragment read from disk and compiled.")
+@Category({CATEGORY, "Pipeline"})
+static class TemplateCompiled extends Event {
+
+    @Label("File")
+    String file;
+
+    @Label("Size")
+    @DataAmount
+    long size;
+
+}//end of class TemplateCompiled
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class FragmentCacheMiss
+//
+
+@Name("webcontenthandler.FragmentCacheMiss")
+@Label("Fragment Cache Miss")
+@Description("A fragment not in the fragment cache, expanded from its"
+                                                            + " template.")
+@Category({CATEGORY, "Pipeline"})
+static class FragmentCacheMiss extends Event {
+
+    @Label("Fragment")
+    String fragment;
+
+    @Label("Expanded Size")
+    @DataAmount
+    long size;
+
+    @Label("Cached")
+    @Description("False if the expansion could not be cached.")
+    boolean cached;
+
+}//end of class FragmentCacheMiss
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class RemoteFetch
+//
+
+@Name("webcontenthandler.RemoteFetch")
+@Label("Remote Fetch")
+@Description("A request for a remote source page.")
+@Category({CATEGORY, "Remote"})
+static class RemoteFetch extends Event {
+
+    @Label("URL")
+    String url;
+
+    @Label("Status")
+    @Description("The HTTP status, or 0 if no response was received.")
+    int status;
+
+    @Label("Size")
+    @DataAmount
+    long size;
+
+}//end of class RemoteFetch
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class IniFileAccess
+//
+
+@Name("webcontenthandler.IniFileAccess")
+@Label("Ini File Access")
+@Description("A settings or header file loaded or saved.")
+@Category({CATEGORY, "Settings"})
+static class IniFileAccess extends Event {
+
+    @Label("File")
+    String file;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Lines")
+    int lines;
+
+}//end of class IniFileAccess
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PipelineEvents::setEnabled
+//
+// Turns creation of the events on or off.
+//
+
+public static void setEnabled(boolean pEnabled)
+{
+
+    enabled = pEnabled;
+
+}//end of PipelineEvents::setEnabled
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// PipelineEvents::isEnabled
+//
+
+public static boolean isEnabled()
+{
+
+    return(enabled);
+
+}//end of PipelineEvents::isEnabled
+//-----------------------------------------------------------------------------
+
+}//end of class PipelineEvents
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,162 @@
+/******************************************************************************
+* Title: RebuildSummary.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class holds the results of a page rebuild performed by the
+* ContentEngine: the number of pages processed and any errors encountered.
+*
+* Pages may be processed on several threads at once, so the counts and error
+* list must only be changed through the synchronized methods.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.util.ArrayList;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class RebuildSummary
+//
+
+public class RebuildSummary extends Object{
+
+    public int pagesRendered = 0;
+    public int pagesUnchanged = 0;
+    public int pagesCancelled = 0;
+
+    //pages rebuilt but not written because the output folder already held
+    //the same contents
+    public int pagesNotWritten = 0;
+
+    //compressed copies of pages written, and those left as they were
+    //because the page's contents had not changed
+    public int variantsWritten = 0;
+    public int variantsUnchanged = 0;
+
+    public ArrayList<String> errors = new ArrayList<String>();
+
+//-----------------------------------------------------------------------------
+// RebuildSummary::RebuildSummary (constructor)
+//
+
+public RebuildSummary()
+{
+
+}//end of RebuildSummary::RebuildSummary (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RebuildSummary::addPageRendered
+//
+
+public synchronized void addPageRendered()
+{
+
+    pagesRendered++;
+
+}//end of RebuildSummary::addPageRendered
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RebuildSummary::addPageCancelled
+//
+
+public synchronized void addPageCancelled()
+{
+
+    pagesCancelled++;
+
+}//end of RebuildSummary::addPageCancelled
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RebuildSummary::addPageNotWritten
+//
+
+public synchronized void addPageNotWritten()
+{
+
+    pagesNotWritten++;
+
+}//end of RebuildSummary::addPageNotWritten
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RebuildSummary::addVariantWritten
+//
+
+public synchronized void addVariantWritten()
+{
+
+    variantsWritten++;
+
+}//end of RebuildSummary::addVariantWritten
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RebuildSummary::addVariantUnchanged
+//
+
+public synchronized void addVariantUnchanged()
+{
+
+    variantsUnchanged++;
+
+}//end of RebuildSummary::addVariantUnchanged
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RebuildSummary::addError
+//
+
+public synchronized void addError(String pMessage)
+{
+
+    errors.add(pMessage);
+
+}//end of RebuildSummary::addError
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RebuildSummary::toString
+//
+// Returns a one line description of the results.
+//
+
+@Override
+public synchronized String toString()
+{
+
+    String text = pagesRendered + " pages rebuilt, " + pagesUnchanged
+                                + " unchanged, " + errors.size() + " errors";
+
+    if (pagesCancelled > 0) {text += ", " + pagesCancelled + " cancelled";}
+
+    if (pagesNotWritten > 0){
+        text += ", " + pagesNotWritten + " identical to output, not written";
+    }
+
+    if (variantsWritten + variantsUnchanged > 0){
+        text += ", " + variantsWritten + " compressed copies written, "
+                                    + variantsUnchanged + " unchanged";
+    }
+
+    return(text);
+
+}//end of RebuildSummary::toString
+//-----------------------------------------------------------------------------
+
+}//end of class RebuildSummary
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -0,0 +1,461 @@
+/******************************************************************************
+* Title: RemoteContentParser.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class pulls content out of a remote XML page and hands it to the
+* ContentEngine as fragments.
+*
+* Each XML element name of interest is mapped to a fragment name. The page is
+* read with a StAX pull parser, one event at a time, and the inner content of
+* every mapped element is written straight to its fragment file as it is
+* read. Nothing else in the page is kept, so memory use stays the same no
+* matter how large the page is.
+*
+* Pages include the fragments with the normal include markers, so the
+* dependency graph tracks which pages use each element. A fragment file is
+* only replaced if its content has actually changed, so unchanged elements do
+* not cause any pages to be rebuilt.
+*
+* The inner content is written as markup: child elements are written as tags,
+* text is escaped, and CDATA sections -- which feeds commonly use to carry
+* HTML -- are written unescaped. If an element occurs more than once, the
+* content of every occurrence is written in order.
+*
+* Pages may be ingested on several threads at once. Feeds which map elements
+* to the same fragment -- as feeds without mappings of their own do, since
+* they all use those of the Remote Content section -- replace it one at a
+* time, so each check for a change and each replacement is made against the
+* fragment's current content.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.xml.stream.*;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class RemoteContentParser
+//
+
+public class RemoteContentParser extends Object{
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class Capture
+//
+// Holds the output for one mapped element while its content is being read.
+//
+
+static class Capture {
+
+    String element;
+    File fragment;
+    File temp;
+    Writer out;
+
+    //depth of the mapped element while inside it, 0 otherwise
+    int depth = 0;
+
+}//end of class Capture
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+
+    String fragmentFolder;
+
+    XMLInputFactory inputFactory;
+
+    //fragment path -> lock held while that fragment is being replaced
+    ConcurrentHashMap<String, Object> fragmentLocks =
+                                    new ConcurrentHashMap<String, Object>();
+
+    //asks the JDK's parser to report CDATA sections separately from text
+    static final String REPORT_CDATA =
+            "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+//-----------------------------------------------------------------------------
+// RemoteContentParser::RemoteContentParser (constructor)
+//
+
+public RemoteContentParser(String pFragmentFolder)
+{
+
+    fragmentFolder = pFragmentFolder;
+
+}//end of RemoteContentParser::RemoteContentParser (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteContentParser::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+// DTDs and external entities are disabled since the pages come from remote
+// servers.
+//
+
+public void init()
+{
+
+    inputFactory = XMLInputFactory.newInstance();
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    inputFactory.setProperty(
+              XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+
+    if (inputFactory.isPropertySupported(REPORT_CDATA)){
+        inputFactory.setProperty(REPORT_CDATA, Boolean.TRUE);
+    }
+
+}//end of RemoteContentParser::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteContentParser::ingest
+//
+// Reads the XML page in pFile and writes the content of each element in
+// pElements, which maps element names to fragment names, to its fragment.
+// Returns the paths of the fragments whose content changed. Mapped elements
+// which do not appear in the page produce empty fragments.
+//
+// This is thread safe. Pages mapping elements to the same fragment may be
+// ingested at the same time; the fragment is replaced by one at a time.
+//
+
+public ArrayList<String> ingest(File pFile, Map<String, String> pElements)
+                                                            throws IOException
+{
+
+    ArrayList<Capture> captures = new ArrayList<Capture>();
+    HashMap<String, Capture> byElement = new HashMap<String, Capture>();
+
+    InputStream in = null;
+    XMLStreamReader reader = null;
+
+    try{
+
+        for (Map.Entry<String, String> entry : pElements.entrySet()){
+            Capture capture = openCapture(entry.getKey(), entry.getValue());
+            captures.add(capture);
+            byElement.put(capture.element, capture);
+        }
+
+        in = new BufferedInputStream(new FileInputStream(pFile));
+        reader = inputFactory.createXMLStreamReader(in);
+
+        copyMappedElements(reader, captures, byElement);
+
+    }
+    catch(XMLStreamException e){
+        discardCaptures(captures);
+        throw new IOException("Error parsing " + pFile + ": " + e.getMessage());
+    }
+    catch(IOException e){
+        discardCaptures(captures);
+        throw e;
+    }
+    finally{
+        try{if (reader != null) {reader.close();}}
+        catch(XMLStreamException e){}
+        if (in != null) {in.close();}
+    }
+
+    ArrayList<String> changed = new ArrayList<String>();
+
+    try{
+        for (Capture capture : captures){
+            synchronized(getLock(capture.fragment)){
+                if (closeCapture(capture)){
+                    changed.add(capture.fragment.getPath());
+                }
+            }
+        }
+    }
+    catch(IOException e){
+        //the temporary files already moved into place are no longer there
+        discardCaptures(captures);
+        throw e;
+    }
+
+    return(changed);
+
+}//end of RemoteContentParser::ingest
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteContentParser::copyMappedElements
+//
+// Pulls events from pReader and copies the inner content of each mapped
+// element to its capture. Mapped elements may be nested; content inside both
+// goes to both.
+//
+
+private void copyMappedElements(XMLStreamReader pReader,
+            ArrayList<Capture> pCaptures, HashMap<String, Capture> pByElement)
+                                        throws XMLStreamException, IOException
+{
+
+    ArrayList<Capture> open = new ArrayList<Capture>();
+
+    while (pReader.hasNext()){
+
+        int event = pReader.next();
+
+        switch (event){
+
+            case XMLStreamConstants.START_ELEMENT:
+                for (Capture capture : open){
+                    capture.depth++;
+                    writeStartTag(pReader, capture.out);
+                }
+                Capture start = pByElement.get(pReader.getLocalName());
+                if (start != null && start.depth == 0){
+                    start.depth = 1;
+                    open.add(start);
+                }
+                break;
+
+            case XMLStreamConstants.END_ELEMENT:
+                for (Iterator<Capture> i = open.iterator(); i.hasNext(); ){
+                    Capture capture = i.next();
+                    if (--capture.depth == 0) {i.remove(); continue;}
+                    capture.out.write("</" + qualifiedName(pReader) + ">");
+                }
+                break;
+
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+                for (Capture capture : open){
+                    writeEscaped(capture.out, pReader.getTextCharacters(),
+                          pReader.getTextStart(), pReader.getTextLength());
+                }
+                break;
+
+            case XMLStreamConstants.CDATA:
+                for (Capture capture : open){
+                    capture.out.write(pReader.getTextCharacters(),
+                          pReader.getTextStart(), pReader.getTextLength());
+                }
+                break;
+
+            case XMLStreamConstants.ENTITY_REFERENCE:
+                for (Capture capture : open){
+                    capture.out.write("&" + pReader.getLocalName() + ";");
+                }
+                break;
+
+            default:
+                break;
+
+        }
+
+    }
+
+}//end of RemoteContentParser::copyMappedElements
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteContentParser::writeStartTag
+//
+// Writes the start tag at the current position of pReader, with its
+// attributes, to pOut.
+//
+
+private static void writeStartTag(XMLStreamReader pReader, Writer pOut)
+                                                            throws IOException
+{
+
+    pOut.write("<" + qualifiedName(pReader));
+
+    for (int i = 0; i < pReader.getAttributeCount(); i++){
+
+        String prefix = pReader.getAttributePrefix(i);
+        String name = pReader.getAttributeLocalName(i);
+        if (prefix != null && !prefix.isEmpty()) {name = prefix + ":" + name;}
+
+        pOut.write(" " + name + "=\"");
+        String value = pReader.getAttributeValue(i);
+        writeEscaped(pOut, value.toCharArray(), 0, value.length());
+        pOut.write("\"");
+
+    }
+
+    pOut.write(">");
+
+}//end of RemoteContentParser::writeStartTag
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteContentParser::qualifiedName
+//
+// Returns the element name at the current position of pReader including any
+// namespace prefix.
+//
+
+private static String qualifiedName(XMLStreamReader pReader)
+{
+
+    String prefix = pReader.getPrefix();
+
+    if (prefix == null || prefix.isEmpty()) {return(pReader.getLocalName());}
+
+    return(prefix + ":" + pReader.getLocalName());
+
+}//end of RemoteContentParser::qualifiedName
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteContentParser::writeEscaped
+//
+// Writes pLength characters of pText starting at pStart to pOut, escaping
+// the characters which are special in markup.
+//
+
+static void writeEscaped(Writer pOut, char[] pText, int pStart, int pLength)
+                                                            throws IOException
+{
+
+    int end = pStart + pLength;
+    int run = pStart;
+
+    for (int i = pStart; i < end; i++){
+
+        String replacement;
+
+        switch (pText[i]){
+            case '<': replacement = "&lt;"; break;
+            case '>': replacement = "&gt;"; break;
+            case '&': replacement = "&amp;"; break;
+            case '"': replacement = "&quot;"; break;
+            default: continue;
+        }
+
+        pOut.write(pText, run, i - run);
+        pOut.write(replacement);
+        run = i + 1;
+
+    }
+
+    pOut.write(pText, run, end - run);
+
+}//end of RemoteContentParser::writeEscaped
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteContentParser::openCapture
+//
+// Returns a capture for pElement which writes to a temporary file beside the
+// fragment named pFragment.
+//
+
+private Capture openCapture(String pElement, String pFragment)
+                                                            throws IOException
+{
+
+    Capture capture = new Capture();
+
+    capture.element = pElement;
+    capture.fragment = new File(fragmentFolder, pFragment);
+
+    File folder = capture.fragment.getAbsoluteFile().getParentFile();
+    folder.mkdirs();
+
+    capture.temp = File.createTempFile("remote", ".tmp", folder);
+
+    capture.out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(capture.temp), StandardCharsets.UTF_8));
+
+    return(capture);
+
+}//end of RemoteContentParser::openCapture
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteContentParser::getLock
+//
+// Returns the lock to be held while pFragment is being replaced. Only one
+// lock is held at a time, so the order fragments are locked in does not
+// matter.
+//
+
+private Object getLock(File pFragment)
+{
+
+    String path = pFragment.getAbsolutePath();
+
+    Object lock = fragmentLocks.get(path);
+
+    if (lock == null){
+        Object created = new Object();
+        lock = fragmentLocks.putIfAbsent(path, created);
+        if (lock == null) {lock = created;}
+    }
+
+    return(lock);
+
+}//end of RemoteContentParser::getLock
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteContentParser::closeCapture
+//
+// Closes pCapture's temporary file and replaces the fragment with it if the
+// content differs. Returns true if the fragment was replaced.
+//
+
+private static boolean closeCapture(Capture pCapture) throws IOException
+{
+
+    pCapture.out.close();
+
+    Path temp = pCapture.temp.toPath();
+    Path fragment = pCapture.fragment.toPath();
+
+    if (Files.exists(fragment) && Files.mismatch(temp, fragment) == -1){
+        Files.delete(temp);
+        return(false);
+    }
+
+    Files.move(temp, fragment, StandardCopyOption.REPLACE_EXISTING);
+
+    return(true);
+
+}//end of RemoteContentParser::closeCapture
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteContentParser::discardCaptures
+//
+// Closes and deletes the temporary files of pCaptures after an error, leaving
+// the existing fragments untouched.
+//
+
+private static void discardCaptures(ArrayList<Capture> pCaptures)
+{
+
+    for (Capture capture : pCaptures){
+        try{capture.out.close();} catch(IOException e){}
+        capture.temp.delete();
+    }
+
+}//end of RemoteContentParser::discardCaptures
+//-----------------------------------------------------------------------------
+
+}//end of class RemoteContentParser
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
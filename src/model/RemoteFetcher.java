@@ -0,0 +1,450 @@
+/******************************************************************************
+* Title: RemoteFetcher.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class fetches remote XML or HTML source pages over HTTP and keeps a
+* copy of each on disk.
+*
+* A single HttpClient is shared by all fetches. It keeps HTTP/1.1
+* connections alive and reuses them for later requests to the same server.
+*
+* The ETag and Last-Modified headers returned with each page are saved with
+* the local copy. The next fetch of the same page sends them back as
+* If-None-Match and If-Modified-Since; if the page has not changed, the server
+* answers 304 Not Modified with no body and the local copy is used, so polling
+* an unchanged page costs one small request and no parsing.
+*
+* The local copy of each page is stored in the remote cache folder in a file
+* named from a hash of its URL, with the headers in a matching ini file.
+*
+* Fetches of the same URL which overlap are coalesced: the first caller
+* performs the fetch and any others which ask for the URL while it is in
+* progress wait for it and share its result, so a batch of jobs which all
+* need the same page costs one request.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.io.*;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class RemoteFetcher
+//
+
+public class RemoteFetcher extends Object{
+
+    static final String SECTION = "Remote Page";
+
+    String cacheFolder;
+    int timeout;
+
+    HttpClient client;
+
+    //URL -> result of the fetch of that URL now in progress
+    ConcurrentHashMap<String, CompletableFuture<FetchResult>> inFlight =
+                new ConcurrentHashMap<String, CompletableFuture<FetchResult>>();
+
+    AtomicLong fetches = new AtomicLong(0);
+    AtomicLong notModified = new AtomicLong(0);
+    AtomicLong bytesReceived = new AtomicLong(0);
+    AtomicLong errors = new AtomicLong(0);
+    AtomicLong coalesced = new AtomicLong(0);
+
+    //time from sending each request until the whole response is received
+    Metrics.Histogram requestTimes = new Metrics.Histogram();
+
+//-----------------------------------------------------------------------------
+// RemoteFetcher::RemoteFetcher (constructor)
+//
+// pCacheFolder is where local copies are stored; pTimeout is the connect and
+// request timeout in milliseconds.
+//
+
+public RemoteFetcher(String pCacheFolder, int pTimeout)
+{
+
+    cacheFolder = pCacheFolder; timeout = pTimeout;
+
+}//end of RemoteFetcher::RemoteFetcher (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcher::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+
+public void init()
+{
+
+    new File(cacheFolder).mkdirs();
+
+    client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(timeout))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+
+}//end of RemoteFetcher::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcher::fetch
+//
+// Fetches the page at pURL, revalidating the local copy if there is one. The
+// server must respond within the timeout given to the constructor.
+//
+
+public FetchResult fetch(String pURL) throws IOException, InterruptedException
+{
+
+    return(fetch(pURL, timeout));
+
+}//end of RemoteFetcher::fetch
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcher::fetch
+//
+// Fetches the page at pURL, revalidating the local copy if there is one.
+// The body of a changed page is streamed straight to the local copy. Returns
+// a FetchResult whose changed flag is false if the server reported the page
+// was not modified.
+//
+// The server must respond within pTimeout milliseconds.
+//
+// If a fetch of pURL is already in progress on another thread, waits for it
+// and returns its result -- or throws its exception -- instead of sending
+// another request.
+//
+// Throws IOException if the page cannot be fetched or the server returns an
+// error status; the local copy is left untouched in that case.
+//
+
+public FetchResult fetch(String pURL, int pTimeout)
+                                        throws IOException, InterruptedException
+{
+
+    CompletableFuture<FetchResult> shared =
+                                        new CompletableFuture<FetchResult>();
+
+    CompletableFuture<FetchResult> existing =
+                                        inFlight.putIfAbsent(pURL, shared);
+
+    if (existing != null){
+        coalesced.incrementAndGet();
+        return(waitFor(existing));
+    }
+
+    try{
+        FetchResult result = send(pURL, pTimeout);
+        shared.complete(result);
+        return(result);
+    }
+    catch(IOException | InterruptedException | RuntimeException e){
+        shared.completeExceptionally(e);
+        throw e;
+    }
+    finally{
+        inFlight.remove(pURL, shared);
+    }
+
+}//end of RemoteFetcher::fetch
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcher::waitFor
+//
+// Waits for the fetch in progress represented by pShared and returns its
+// result or throws the exception it threw.
+//
+
+private static FetchResult waitFor(CompletableFuture<FetchResult> pShared)
+                                        throws IOException, InterruptedException
+{
+
+    try{
+        return(pShared.get());
+    }
+    catch(ExecutionException e){
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {throw (IOException)cause;}
+        if (cause instanceof RuntimeException){
+            throw (RuntimeException)cause;
+        }
+        //the fetching thread was interrupted -- this one was not, so report
+        //it as a failed fetch
+        throw new IOException("Shared fetch was interrupted");
+    }
+
+}//end of RemoteFetcher::waitFor
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcher::send
+//
+// Sends the request for pURL and handles the response as described for
+// fetch.
+//
+
+private FetchResult send(String pURL, int pTimeout)
+                                        throws IOException, InterruptedException
+{
+
+    fetches.incrementAndGet();
+
+    String name = hashName(pURL);
+    File bodyFile = new File(cacheFolder, name + ".xml");
+    String headerFilename = new File(cacheFolder, name + ".ini").getPath();
+
+    IniFile headers = new IniFile(headerFilename, "UTF-8");
+
+    HttpRequest.Builder request;
+
+    try{
+        request = HttpRequest.newBuilder(URI.create(pURL));
+    }
+    catch(IllegalArgumentException e){
+        errors.incrementAndGet();
+        throw new IOException("Invalid URL: " + pURL);
+    }
+
+    request.timeout(Duration.ofMillis(pTimeout)).GET();
+
+    //only revalidate if there is a local copy to fall back on
+
+    if (bodyFile.isFile()){
+        String eTag = headers.readString(SECTION, "ETag", "");
+        String lastModified = headers.readString(SECTION, "Last Modified", "");
+        if (!eTag.isEmpty()) {request.header("If-None-Match", eTag);}
+        if (!lastModified.isEmpty()){
+            request.header("If-Modified-Since", lastModified);
+        }
+    }
+
+    Path temp = Files.createTempFile(Paths.get(cacheFolder), name, ".tmp");
+
+    //the temporary file is left only if it was moved into place -- not if
+    //the fetch fails, is interrupted, or throws anything else
+
+    try{
+        return(receive(pURL, request.build(), temp, bodyFile, headers));
+    }
+    finally{
+        Files.deleteIfExists(temp);
+    }
+
+}//end of RemoteFetcher::send
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcher::receive
+//
+// Sends pRequest, streaming the response body to pTemp, and handles the
+// response as described for fetch. A changed page is moved from pTemp to
+// pBodyFile and its headers saved in pHeaders.
+//
+
+private FetchResult receive(String pURL, HttpRequest pRequest, Path pTemp,
+                                        File pBodyFile, IniFile pHeaders)
+                                        throws IOException, InterruptedException
+{
+
+    HttpResponse<Path> response;
+
+    PipelineEvents.RemoteFetch event = null;
+
+    if (PipelineEvents.enabled){
+        event = new PipelineEvents.RemoteFetch();
+        event.url = pURL;
+        event.begin();
+    }
+
+    long start = System.nanoTime();
+
+    try{
+        response = client.send(pRequest,
+                                      HttpResponse.BodyHandlers.ofFile(pTemp));
+    }
+    catch(IOException e){
+        errors.incrementAndGet();
+        throw e;
+    }
+    finally{
+        requestTimes.record(System.nanoTime() - start);
+        if (event != null) {event.end();}
+    }
+
+    int status = response.statusCode();
+
+    if (event != null){
+        event.status = status; event.size = Files.size(pTemp);
+        event.commit();
+    }
+
+    if (status == 304){
+        notModified.incrementAndGet();
+        String version = pHeaders.readString(SECTION, "Version", "");
+        return(new FetchResult(pURL, status, false, pBodyFile, version));
+    }
+
+    if (status != 200){
+        errors.incrementAndGet();
+        throw new IOException("HTTP status " + status + " from " + pURL);
+    }
+
+    bytesReceived.addAndGet(Files.size(pTemp));
+
+    //replace the local copy in one step so readers never see a partial file
+
+    try{
+        Files.move(pTemp, pBodyFile.toPath(),
+                                        StandardCopyOption.REPLACE_EXISTING,
+                                        StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch(AtomicMoveNotSupportedException e){
+        Files.move(pTemp, pBodyFile.toPath(),
+                                        StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    pHeaders.writeString(SECTION, "URL", pURL);
+    pHeaders.writeString(SECTION, "ETag",
+                response.headers().firstValue("ETag").orElse(""));
+    pHeaders.writeString(SECTION, "Last Modified",
+                response.headers().firstValue("Last-Modified").orElse(""));
+    String version = UUID.randomUUID().toString();
+    pHeaders.writeString(SECTION, "Version", version);
+    pHeaders.save();
+
+    return(new FetchResult(pURL, status, true, pBodyFile, version));
+
+}//end of RemoteFetcher::receive
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcher::getFetchCount
+//
+// Returns the number of requests sent, not counting coalesced fetches.
+//
+
+public long getFetchCount()
+{
+
+    return(fetches.get());
+
+}//end of RemoteFetcher::getFetchCount
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcher::getBytesReceived
+//
+
+public long getBytesReceived()
+{
+
+    return(bytesReceived.get());
+
+}//end of RemoteFetcher::getBytesReceived
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcher::getErrorCount
+//
+
+public long getErrorCount()
+{
+
+    return(errors.get());
+
+}//end of RemoteFetcher::getErrorCount
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcher::getRequestTimes
+//
+// Returns the histogram of the time taken by each request, including those
+// which failed.
+//
+
+public Metrics.Histogram getRequestTimes()
+{
+
+    return(requestTimes);
+
+}//end of RemoteFetcher::getRequestTimes
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcher::getStatistics
+//
+// Returns a one line description of the fetch counts.
+//
+
+public String getStatistics()
+{
+
+    return("Remote fetches: " + fetches.get() + ", " + notModified.get()
+                + " not modified, " + coalesced.get() + " coalesced, "
+                + bytesReceived.get() + " bytes received, "
+                + errors.get() + " errors");
+
+}//end of RemoteFetcher::getStatistics
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcher::hashName
+//
+// Returns a filename for the local copy of pURL made from a hash of the URL
+// so any URL maps to a valid, unique name.
+//
+
+static String hashName(String pURL)
+{
+
+    try{
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        byte[] hash = digest.digest(pURL.getBytes("UTF-8"));
+
+        StringBuilder name = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {name.append(String.format("%02x", b & 0xff));}
+
+        return(name.toString());
+
+    }
+    catch(NoSuchAlgorithmException | UnsupportedEncodingException e){
+        //every Java platform is required to support SHA-1 and UTF-8
+        throw new IllegalStateException(e);
+    }
+
+}//end of RemoteFetcher::hashName
+//-----------------------------------------------------------------------------
+
+}//end of class RemoteFetcher
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
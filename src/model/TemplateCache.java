@@ -0,0 +1,272 @@
+/******************************************************************************
+* Title: TemplateCache.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class caches CompiledTemplate objects so that a page or fragment file
+* is read from disk and scanned for markers only once, no matter how many
+* pages it is inserted into.
+*
+* Entries are keyed by file path and are only used if the file's modification
+* time still matches the time recorded when the template was compiled.
+*
+* The cache is limited both by a byte budget and by a number of entries, so
+* a few very large pages cannot fill the heap while the count stays low.
+* When either limit is exceeded, the least recently used templates are
+* discarded until both are met again. A template larger than the entire
+* budget is used but never cached.
+*
+* Hit, miss, and eviction counts are kept for display.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import java.io.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class TemplateCache
+//
+
+public class TemplateCache extends Object{
+
+    int maxEntries;
+    long budget;
+
+    LinkedHashMap<String, CompiledTemplate> templates;
+
+    //total size of the cached templates
+    long totalBytes = 0;
+
+    long hits = 0, misses = 0, evictions = 0, rejected = 0;
+
+    //total size of the files read from disk
+    long bytesRead = 0;
+
+//-----------------------------------------------------------------------------
+// TemplateCache::TemplateCache (constructor)
+//
+// pMaxEntries is the maximum number of templates and pBudget the maximum
+// number of bytes to be held by all of them.
+//
+
+public TemplateCache(int pMaxEntries, long pBudget)
+{
+
+    maxEntries = pMaxEntries; budget = pBudget;
+
+}//end of TemplateCache::TemplateCache (constructor)
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// TemplateCache::init
+//
+// Initializes the object.  Must be called immediately after instantiation.
+//
+
+public void init()
+{
+
+    //access ordered so the eldest entry is always the least recently used
+
+    templates = new LinkedHashMap<String, CompiledTemplate>(16, 0.75f, true);
+
+}//end of TemplateCache::init
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// TemplateCache::getTemplate
+//
+// Returns the compiled template for pFile, reading and compiling the file
+// only if it is not in the cache or has been modified since it was cached.
+//
+// The file is read outside of the lock so that other threads may use the
+// cache while it is loading.
+//
+
+public CompiledTemplate getTemplate(File pFile) throws IOException
+{
+
+    String path = pFile.getPath();
+    long modified = pFile.lastModified();
+
+    synchronized(this){
+        CompiledTemplate template = templates.get(path);
+        if (template != null && template.lastModified == modified){
+            hits++;
+            return(template);
+        }
+        misses++;
+    }
+
+    PipelineEvents.TemplateCompiled event = null;
+
+    if (PipelineEvents.enabled){
+        event = new PipelineEvents.TemplateCompiled();
+        event.begin();
+    }
+
+    CompiledTemplate template = new CompiledTemplate(path, modified);
+    byte[] bytes = readBytes(pFile);
+    template.compile(bytes);
+
+    if (event != null){
+        event.file = path; event.size = bytes.length;
+        event.commit();
+    }
+
+    synchronized(this){
+        bytesRead += bytes.length;
+        put(path, template);
+    }
+
+    return(template);
+
+}//end of TemplateCache::getTemplate
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// TemplateCache::put
+//
+// Caches pTemplate under pPath, replacing any template already there. The
+// least recently used templates are discarded until the entry count and
+// the budget are met. The caller must hold the lock.
+//
+
+private void put(String pPath, CompiledTemplate pTemplate)
+{
+
+    CompiledTemplate old = templates.remove(pPath);
+    if (old != null) {totalBytes -= old.getSize();}
+
+    if (pTemplate.getSize() > budget) {rejected++; return;}
+
+    templates.put(pPath, pTemplate);
+    totalBytes += pTemplate.getSize();
+
+    Iterator<Map.Entry<String, CompiledTemplate>> i =
+                                            templates.entrySet().iterator();
+
+    while ((templates.size() > maxEntries || totalBytes > budget)
+                                                            && i.hasNext()){
+        CompiledTemplate eldest = i.next().getValue();
+        i.remove();
+        totalBytes -= eldest.getSize();
+        evictions++;
+    }
+
+}//end of TemplateCache::put
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// TemplateCache::getHits
+//
+
+public synchronized long getHits()
+{
+
+    return(hits);
+
+}//end of TemplateCache::getHits
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// TemplateCache::getMisses
+//
+
+public synchronized long getMisses()
+{
+
+    return(misses);
+
+}//end of TemplateCache::getMisses
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// TemplateCache::getEvictions
+//
+
+public synchronized long getEvictions()
+{
+
+    return(evictions);
+
+}//end of TemplateCache::getEvictions
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// TemplateCache::getTotalBytes
+//
+// Returns the total size of the templates in the cache.
+//
+
+public synchronized long getTotalBytes()
+{
+
+    return(totalBytes);
+
+}//end of TemplateCache::getTotalBytes
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// TemplateCache::getBytesRead
+//
+// Returns the total size of the pages and fragments read from disk.
+//
+
+public synchronized long getBytesRead()
+{
+
+    return(bytesRead);
+
+}//end of TemplateCache::getBytesRead
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// TemplateCache::readBytes
+//
+// Returns the entire contents of pFile.
+//
+
+static byte[] readBytes(File pFile) throws IOException
+{
+
+    FileInputStream in = null;
+
+    try{
+
+        in = new FileInputStream(pFile);
+
+        ByteArrayOutputStream out =
+                            new ByteArrayOutputStream((int)pFile.length() + 1);
+        byte[] chunk = new byte[8192];
+        int count;
+
+        while ((count = in.read(chunk)) != -1) {out.write(chunk, 0, count);}
+
+        return(out.toByteArray());
+
+    }
+    finally{
+        if (in != null) {in.close();}
+    }
+
+}//end of TemplateCache::readBytes
+//-----------------------------------------------------------------------------
+
+}//end of class TemplateCache
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
@@ -38,6 +38,9 @@ public class MainMenu extends JMenuBar{
     JMenuItem openFile;
     JMenuItem saveFile;
     JMenuItem saveFileAs;
+    JMenuItem rebuildAll, rebuildChanged;
+    JMenuItem fetchRemotePage;
+    JMenuItem saveMetrics;
 
     JMenu helpMenu;
     JMenuItem logMenuItem, aboutMenuItem, helpMenuItem, exitMenuItem;
@@ -75,6 +78,45 @@ public MainMenu(ActionListener pActionListener)
     openFile.addActionListener(actionListener);
     fileMenu.add(openFile);
 
+    fileMenu.addSeparator();
+
+    //File/Rebuild All Pages
+    rebuildAll = new JMenuItem("Rebuild All Pages");
+    rebuildAll.setMnemonic(KeyEvent.VK_A);
+    rebuildAll.setToolTipText("Insert content into every source page.");
+    rebuildAll.setActionCommand("Rebuild All");
+    rebuildAll.addActionListener(actionListener);
+    fileMenu.add(rebuildAll);
+
+    //File/Rebuild Changed Pages
+    rebuildChanged = new JMenuItem("Rebuild Changed Pages");
+    rebuildChanged.setMnemonic(KeyEvent.VK_C);
+    rebuildChanged.setToolTipText(
+            "Insert content only into pages affected by changed files.");
+    rebuildChanged.setActionCommand("Rebuild Changed");
+    rebuildChanged.addActionListener(actionListener);
+    fileMenu.add(rebuildChanged);
+
+    //File/Fetch Remote Page
+    fetchRemotePage = new JMenuItem("Fetch Remote Page");
+    fetchRemotePage.setMnemonic(KeyEvent.VK_F);
+    fetchRemotePage.setToolTipText(
+            "Fetch all remote feeds now.");
+    fetchRemotePage.setActionCommand("Fetch Remote Page");
+    fetchRemotePage.addActionListener(actionListener);
+    fileMenu.add(fetchRemotePage);
+
+    //File/Save Metrics Snapshot
+    saveMetrics = new JMenuItem("Save Metrics Snapshot");
+    saveMetrics.setMnemonic(KeyEvent.VK_M);
+    saveMetrics.setToolTipText(
+            "Save all counters and latencies to the Log Files folder.");
+    saveMetrics.setActionCommand("Save Metrics");
+    saveMetrics.addActionListener(actionListener);
+    fileMenu.add(saveMetrics);
+
+    fileMenu.addSeparator();
+
     //File/Exit menu item
     exitMenuItem = new JMenuItem("Exit");
     exitMenuItem.setMnemonic(KeyEvent.VK_X);
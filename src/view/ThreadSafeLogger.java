@@ -34,6 +34,7 @@ package view;
 
 import view.Log;
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Date;
 import javax.swing.*;
 
@@ -48,15 +49,14 @@ public class ThreadSafeLogger {
 
     String filenameSuffix;
 
-    String[] messages; //stores messages to be displayed by main thread
-    int nextSlotAvailable = 0;
-    int nextSlotToDisplay = 0;
-    static int MESSAGE_BUFFER_SIZE = 100;
+    //stores messages to be displayed by main thread
+    ArrayList<String> messages;
 
 //-----------------------------------------------------------------------------
 // ThreadSafeLogger::ThreadSafeLogger (constructor)
 //
-// Pass the Log window for displaying messages via pLog.
+// Pass the Log window for displaying messages via pLog. If pLog is null,
+// messages are held until setLog is called.
 //
 
 public ThreadSafeLogger(JTextArea pLog)
@@ -64,7 +64,7 @@ public ThreadSafeLogger(JTextArea pLog)
 
     log = pLog;
 
-    messages = new String[MESSAGE_BUFFER_SIZE];
+    messages = new ArrayList<String>();
 
 }//end of ThreadSafeLogger::ThreadSafeLogger (constructor)
 //-----------------------------------------------------------------------------
@@ -76,17 +76,26 @@ public ThreadSafeLogger(JTextArea pLog)
 // actual call is passed to the invokeLater function so it will be safely
 // executed by the main Java thread.
 //
-// Messages are stored in a circular buffer so that the calling thead does
-// not overwrite the previous message before the main thread can process it.
+// Messages are stored in a buffer until the main thread can process them.
+// Any number of threads may log messages at the same time and no messages
+// are lost no matter how many are logged before the main thread runs.
+//
+// Only the first message added to an empty buffer schedules a call to the
+// main thread -- that call displays all messages added in the meantime.
 //
 
 public void logMessage(String pMessage)
 {
 
-    //store the message in a buffer where the helper can find it
+    synchronized(this){
+
+        //store the message in a buffer where the helper can find it
+        messages.add(pMessage);
 
-    messages[nextSlotAvailable++] = pMessage;
-    if (nextSlotAvailable == MESSAGE_BUFFER_SIZE) {nextSlotAvailable = 0;}
+        //a display is already scheduled if the buffer was not empty
+        if (messages.size() > 1) {return;}
+
+    }
 
     //schedule a job for the event-dispatching thread to add message to the log
 
@@ -110,22 +119,46 @@ public void logMessage(String pMessage)
 public void logMessageThreadSafe()
 {
 
-    //apply all new updates in the buffer
+    //hold the messages until there is a window to display them
+    if (log == null) {return;}
 
-    while (nextSlotToDisplay != nextSlotAvailable){
+    ArrayList<String> pending;
 
-        //display the next message stored in the array
-        log.append(messages[nextSlotToDisplay++]);
+    //take all messages in the buffer so other threads can continue logging
+    //while they are displayed
 
-        if (nextSlotToDisplay == MESSAGE_BUFFER_SIZE) {
-            nextSlotToDisplay = 0;
-        }
+    synchronized(this){
+        pending = messages;
+        messages = new ArrayList<String>();
+    }
 
-    }//while (nextSlotToDisplay != nextSlotAvailable)
+    //join the messages so the text area is only updated once
+
+    StringBuilder text = new StringBuilder();
+    for (String message : pending) {text.append(message);}
+
+    log.append(text.toString());
 
 }//end of ThreadSafeLogger::logMessageThreadSafe
 //-----------------------------------------------------------------------------
 
+//-----------------------------------------------------------------------------
+// ThreadSafeLogger::setLog
+//
+// Sets the text area pLog in which messages are displayed and displays any
+// messages held until now. Must be called from the event-dispatching thread.
+//
+
+public void setLog(JTextArea pLog)
+{
+
+    log = pLog;
+
+    logMessageThreadSafe();
+
+}//end of ThreadSafeLogger::setLog
+//-----------------------------------------------------------------------------
+
 //-----------------------------------------------------------------------------
 // ThreadSafeLogger::separate
 //
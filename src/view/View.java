@@ -65,6 +65,7 @@ public class View
     Font redLargeFont, greenLargeFont, yellowLargeFont, blackLargeFont;
 
     JLabel statusLabel, infoLabel;
+    JLabel templateCacheLabel;
     JLabel progressLabel;
 
 //-----------------------------------------------------------------------------
@@ -91,11 +92,10 @@ public void init()
 
     setupMainFrame();
 
-    //create a window for displaying messages and an object to handle updating
-    //it in threadsafe manner
-    log = new Log(mainFrame); log.setLocation(230, 0);
-
-    tsLog = new ThreadSafeLogger(log.textArea);
+    //create an object to handle updating the log window in threadsafe
+    //manner -- the window itself is created after the main frame is
+    //displayed so the main frame appears sooner; messages are held until then
+    tsLog = new ThreadSafeLogger(null);
 
     //create an object to handle thread safe updates of GUI components
     guiUpdater = new GuiUpdater(mainFrame);
@@ -118,6 +118,12 @@ public void init()
     //display the main frame
     mainFrame.setVisible(true);
 
+    //create the log window once the main frame has been displayed
+    javax.swing.SwingUtilities.invokeLater(
+        new Runnable() {
+            @Override
+            public void run() { createLog(); } });
+
 }// end of View::init
 //-----------------------------------------------------------------------------
 
@@ -137,7 +143,7 @@ public void setupMainFrame()
     mainFrame.getContentPane().add(mainPanel);
 
     //set the min/max/preferred sizes of the panel to set the size of the frame
-    setSizes(mainPanel, 200, 300);
+    setSizes(mainPanel, 200, 330);
 
     mainFrame.addWindowListener(windowListener);
 
@@ -180,18 +186,28 @@ private void setupGui()
 
     mainPanel.add(Box.createRigidArea(new Dimension(0,20))); //vertical spacer
 
-    //create a label to display miscellaneous info
-    infoLabel = new JLabel("Info");
+    //create a label to display page throughput
+    infoLabel = new JLabel("Pages: 0");
+    infoLabel.setToolTipText(
+                  "Pages processed, pages per second, and pages failed.");
     mainPanel.add(infoLabel);
 
+    mainPanel.add(Box.createRigidArea(new Dimension(0,10))); //vertical spacer
+
+    //create a label to display template cache hits and misses
+    templateCacheLabel = new JLabel("Templates: 0 hits / 0 misses");
+    templateCacheLabel.setToolTipText(
+                  "Compiled template cache hits and misses (disk reads).");
+    mainPanel.add(templateCacheLabel);
+
     mainPanel.add(Box.createRigidArea(new Dimension(0,20))); //vertical spacer
 
-    //add button
-    JButton unused1 = new JButton("Unused 1");
-    unused1.setActionCommand("Unused 1");
-    unused1.addActionListener(actionListener);
-    unused1.setToolTipText("Unused 1");
-    mainPanel.add(unused1);
+    //add button to cancel all background jobs
+    JButton cancelJobs = new JButton("Cancel Jobs");
+    cancelJobs.setActionCommand("Cancel Jobs");
+    cancelJobs.addActionListener(actionListener);
+    cancelJobs.setToolTipText("Cancel all queued and running jobs.");
+    mainPanel.add(cancelJobs);
 
     mainPanel.add(Box.createRigidArea(new Dimension(0,10))); //vertical spacer
 
@@ -204,7 +220,10 @@ private void setupGui()
 
     mainPanel.add(Box.createRigidArea(new Dimension(0,10))); //vertical spacer
 
-    progressLabel = new JLabel("Progress");
+    //create a label to display page latencies and the job queue depth
+    progressLabel = new JLabel("p50/p99: --");
+    progressLabel.setToolTipText("Median and 99th percentile page"
+                        + " processing times and the number of jobs queued.");
     mainPanel.add(progressLabel);
 
     mainPanel.add(Box.createRigidArea(new Dimension(0,10))); //vertical spacer
@@ -246,6 +265,25 @@ public void createFonts()
 }// end of Controller::createFonts
 //-----------------------------------------------------------------------------
 
+//-----------------------------------------------------------------------------
+// View::createLog
+//
+// Creates and displays the window for displaying messages, if it does not
+// already exist, and displays any messages logged before it was created.
+//
+
+private void createLog()
+{
+
+    if (log != null) {return;}
+
+    log = new Log(mainFrame); log.setLocation(230, 0);
+
+    tsLog.setLog(log.textArea);
+
+}//end of View::createLog
+//-----------------------------------------------------------------------------
+
 //-----------------------------------------------------------------------------
 // View::displayLog
 //
@@ -256,6 +294,8 @@ public void createFonts()
 public void displayLog()
 {
 
+    createLog();
+
     log.setVisible(true);
 
 }//end of View::displayLog
@@ -306,6 +346,68 @@ public void displayErrorMessage(String pMessage)
 }//end of View::displayErrorMessage
 //-----------------------------------------------------------------------------
 
+//-----------------------------------------------------------------------------
+// View::logLine
+//
+// Appends pText and a new line to the log window. This is thread safe and
+// may be called from any thread.
+//
+
+public void logLine(String pText)
+{
+
+    tsLog.appendLine(pText);
+
+}//end of View::logLine
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// View::updateStatus
+//
+// Sets the text of the status label. This is thread safe and may be called
+// from any thread.
+//
+
+public void updateStatus(String pText)
+{
+
+    guiUpdater.addUpdate(statusLabel, null, pText);
+
+}//end of View::updateStatus
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// View::updateMetricsDisplay
+//
+// Displays pInfo, the page throughput, and pProgress, the latencies and
+// queue depth. This is thread safe and may be called from any thread.
+//
+
+public void updateMetricsDisplay(String pInfo, String pProgress)
+{
+
+    guiUpdater.addUpdate(infoLabel, null, pInfo);
+    guiUpdater.addUpdate(progressLabel, null, pProgress);
+
+}//end of View::updateMetricsDisplay
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// View::updateTemplateCacheDisplay
+//
+// Displays the template cache hit and miss counts. This is thread safe and
+// may be called from any thread.
+//
+
+public void updateTemplateCacheDisplay(long pHits, long pMisses)
+{
+
+    guiUpdater.addUpdate(templateCacheLabel, null,
+                    "Templates: " + pHits + " hits / " + pMisses + " misses");
+
+}//end of View::updateTemplateCacheDisplay
+//-----------------------------------------------------------------------------
+
 //-----------------------------------------------------------------------------
 // View::setSizes
 //
@@ -21,6 +21,7 @@ package webcontenthandler;
 //-----------------------------------------------------------------------------
 
 import controller.Controller;
+import controller.HeadlessController;
 
 //-----------------------------------------------------------------------------
 //-----------------------------------------------------------------------------
@@ -55,13 +56,39 @@ private static void createController()
 }//end of Main::createController
 //-----------------------------------------------------------------------------
 
+//-----------------------------------------------------------------------------
+// Main::runHeadless
+//
+// Runs the processing from the command line without creating the GUI and
+// exits with the resulting status. The GUI toolkit is never started, so
+// this starts quickly and works where there is no display.
+//
+
+private static void runHeadless(String[] args)
+{
+
+    System.setProperty("java.awt.headless", "true");
+
+    HeadlessController headlessController = new HeadlessController(args);
+    headlessController.init();
+
+    System.exit(headlessController.run());
+
+}//end of Main::runHeadless
+//-----------------------------------------------------------------------------
+
 //-----------------------------------------------------------------------------
 // Main::main
 //
+// If any command line arguments are given, the program runs headless as
+// described in HeadlessController; otherwise the GUI is started.
+//
 
 public static void main(String[] args)
 {
 
+    if (args.length > 0) {runHeadless(args); return;}
+
     //Schedule a job for the event-dispatching thread:
     //creating and showing this application's GUI.
 
@@ -0,0 +1,387 @@
+/******************************************************************************
+* Title: RemoteFetcherTest.java
+* Author: Mike Schoonover
+* Date: 10/18/26
+*
+* Purpose:
+*
+* This class tests RemoteFetcher against a stub HTTP server running on the
+* loopback interface: a changed page is downloaded and a later fetch is
+* revalidated with a 304, the version of the local copy changes only when
+* a changed page is received, overlapping fetches of the same URL send one
+* request, and no temporary download files are left behind when a fetch
+* fails or is interrupted.
+*
+* Open Source Policy:
+*
+* This source code is Public Domain and free to any interested party.  Any
+* person, company, or organization may do with it as they please.
+*
+*/
+
+//-----------------------------------------------------------------------------
+
+package model;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------
+// class RemoteFetcherTest
+//
+
+public class RemoteFetcherTest {
+
+    static final String BODY = "<feed><item>News</item></feed>";
+    static final String ETAG = "\"v1\"";
+
+    static final int TIMEOUT = 5000;
+
+    HttpServer server;
+    String url;
+
+    //status returned by the stub server for requests without a matching ETag
+    volatile int status = 200;
+
+    //current ETag of the page on the stub server
+    volatile String eTag = ETAG;
+
+    //if set, each request waits for this latch before being answered
+    volatile CountDownLatch hold;
+
+    //counted down as each request arrives
+    volatile CountDownLatch arrived = new CountDownLatch(1);
+
+    AtomicInteger requests = new AtomicInteger(0);
+    AtomicInteger notModified = new AtomicInteger(0);
+
+    Path cacheFolder;
+    RemoteFetcher fetcher;
+
+//-----------------------------------------------------------------------------
+// RemoteFetcherTest::setUp
+//
+// Starts the stub server on a free port and creates a fetcher with an empty
+// cache folder.
+//
+
+@Before
+public void setUp() throws IOException
+{
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+    server.createContext("/feed.xml", new HttpHandler() {
+        @Override
+        public void handle(HttpExchange pExchange) throws IOException {
+            respond(pExchange);
+        }});
+
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+
+    url = "http://127.0.0.1:" + server.getAddress().getPort() + "/feed.xml";
+
+    cacheFolder = Files.createTempDirectory("RemoteFetcherTest");
+
+    fetcher = new RemoteFetcher(cacheFolder.toString(), TIMEOUT);
+    fetcher.init();
+
+}//end of RemoteFetcherTest::setUp
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcherTest::tearDown
+//
+
+@After
+public void tearDown() throws IOException
+{
+
+    if (hold != null) {hold.countDown();}
+
+    server.stop(0);
+
+    File[] files = cacheFolder.toFile().listFiles();
+    if (files != null) {for (File file : files) {file.delete();}}
+
+    Files.deleteIfExists(cacheFolder);
+
+}//end of RemoteFetcherTest::tearDown
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcherTest::respond
+//
+// Answers a request to the stub server: 304 if the request carries the
+// current ETag, otherwise the page with the current status and ETag.
+//
+
+private void respond(HttpExchange pExchange) throws IOException
+{
+
+    requests.incrementAndGet();
+    arrived.countDown();
+
+    try{
+        if (hold != null) {hold.await(TIMEOUT, TimeUnit.MILLISECONDS);}
+    }
+    catch(InterruptedException e){
+        Thread.currentThread().interrupt();
+    }
+
+    if (eTag.equals(pExchange.getRequestHeaders().getFirst("If-None-Match"))){
+        notModified.incrementAndGet();
+        pExchange.sendResponseHeaders(304, -1);
+        pExchange.close();
+        return;
+    }
+
+    byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+
+    pExchange.getResponseHeaders().set("ETag", eTag);
+    pExchange.sendResponseHeaders(status, body.length);
+
+    OutputStream out = pExchange.getResponseBody();
+    try{
+        out.write(body);
+    }
+    finally{
+        out.close();
+    }
+
+}//end of RemoteFetcherTest::respond
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcherTest::testChangedThenNotModified
+//
+// The first fetch downloads the page; the second sends its ETag back and is
+// answered 304, leaving the local copy as it was.
+//
+
+@Test
+public void testChangedThenNotModified() throws Exception
+{
+
+    FetchResult first = fetcher.fetch(url);
+
+    assertEquals(200, first.status);
+    assertTrue(first.changed);
+    byte[] saved = Files.readAllBytes(first.file.toPath());
+    assertEquals(BODY, new String(saved, StandardCharsets.UTF_8));
+
+    FetchResult second = fetcher.fetch(url);
+
+    assertEquals(304, second.status);
+    assertFalse(second.changed);
+    assertEquals(first.file, second.file);
+    assertTrue(second.file.isFile());
+
+    assertEquals(2, requests.get());
+    assertEquals(1, notModified.get());
+    assertEquals(2, fetcher.getFetchCount());
+    assertEquals(0, fetcher.getErrorCount());
+
+    assertNoTempFiles();
+
+}//end of RemoteFetcherTest::testChangedThenNotModified
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcherTest::testVersionChangesWithContent
+//
+// A fetch answered 304 reports the version of the local copy received
+// earlier, so a caller which shares the URL can tell the content is new to
+// it; a changed page is given a new version.
+//
+
+@Test
+public void testVersionChangesWithContent() throws Exception
+{
+
+    FetchResult first = fetcher.fetch(url);
+    FetchResult second = fetcher.fetch(url);
+
+    assertTrue(first.changed);
+    assertFalse(first.version.isEmpty());
+    assertFalse(second.changed);
+    assertEquals(first.version, second.version);
+
+    eTag = "\"v2\"";
+
+    FetchResult third = fetcher.fetch(url);
+
+    assertTrue(third.changed);
+    assertFalse(first.version.equals(third.version));
+
+    assertNoTempFiles();
+
+}//end of RemoteFetcherTest::testVersionChangesWithContent
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcherTest::testConcurrentFetchesAreCoalesced
+//
+// Several threads fetch the same URL while the server holds the first
+// request; only that request is sent and every thread gets its result.
+//
+
+@Test
+public void testConcurrentFetchesAreCoalesced() throws Exception
+{
+
+    final int threads = 8;
+
+    hold = new CountDownLatch(1);
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+    try{
+
+        ArrayList<Future<FetchResult>> results =
+                                        new ArrayList<Future<FetchResult>>();
+
+        for (int i = 0; i < threads; i++){
+            results.add(pool.submit(new Callable<FetchResult>() {
+                @Override
+                public FetchResult call() throws Exception {
+                    return(fetcher.fetch(url));
+                }}));
+        }
+
+        assertTrue(arrived.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        //wait until every other thread has joined the fetch in progress
+
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (fetcher.coalesced.get() < threads - 1
+                                    && System.currentTimeMillis() < deadline){
+            Thread.sleep(10);
+        }
+
+        hold.countDown();
+
+        for (Future<FetchResult> result : results){
+            FetchResult fetched = result.get(TIMEOUT, TimeUnit.MILLISECONDS);
+            assertTrue(fetched.changed);
+            assertEquals(200, fetched.status);
+        }
+
+    }
+    finally{
+        pool.shutdownNow();
+    }
+
+    assertEquals(1, requests.get());
+    assertEquals(1, fetcher.getFetchCount());
+    assertEquals(threads - 1, fetcher.coalesced.get());
+
+    assertNoTempFiles();
+
+}//end of RemoteFetcherTest::testConcurrentFetchesAreCoalesced
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcherTest::testErrorStatusLeavesNoTempFile
+//
+
+@Test
+public void testErrorStatusLeavesNoTempFile() throws Exception
+{
+
+    status = 500;
+
+    try{
+        fetcher.fetch(url);
+        fail("expected an IOException for status 500");
+    }
+    catch(IOException e){
+        //expected
+    }
+
+    assertEquals(1, fetcher.getErrorCount());
+
+    assertNoTempFiles();
+
+}//end of RemoteFetcherTest::testErrorStatusLeavesNoTempFile
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcherTest::testInterruptedFetchLeavesNoTempFile
+//
+// A fetch interrupted while waiting for the server, as happens when jobs are
+// cancelled or the program shuts down, removes its temporary file.
+//
+
+@Test
+public void testInterruptedFetchLeavesNoTempFile() throws Exception
+{
+
+    hold = new CountDownLatch(1);
+
+    final CountDownLatch interrupted = new CountDownLatch(1);
+
+    Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+            try{
+                fetcher.fetch(url);
+            }
+            catch(InterruptedException e){
+                interrupted.countDown();
+            }
+            catch(IOException e){
+                //not the expected outcome -- checked below
+            }
+        }});
+
+    thread.start();
+
+    assertTrue(arrived.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+    thread.interrupt();
+    thread.join(TIMEOUT);
+
+    assertTrue(interrupted.await(0, TimeUnit.MILLISECONDS));
+
+    assertNoTempFiles();
+
+}//end of RemoteFetcherTest::testInterruptedFetchLeavesNoTempFile
+//-----------------------------------------------------------------------------
+
+//-----------------------------------------------------------------------------
+// RemoteFetcherTest::assertNoTempFiles
+//
+// Fails if any temporary download file is left in the cache folder.
+//
+
+private void assertNoTempFiles()
+{
+
+    File[] files = cacheFolder.toFile().listFiles();
+
+    for (File file : files){
+        assertFalse("left behind: " + file.getName(),
+                                            file.getName().endsWith(".tmp"));
+    }
+
+}//end of RemoteFetcherTest::assertNoTempFiles
+//-----------------------------------------------------------------------------
+
+}//end of class RemoteFetcherTest
+//-----------------------------------------------------------------------------
+//-----------------------------------------------------------------------------